@@ -16,6 +16,7 @@
 package net.siisise.iso.asn1;
 
 import java.math.BigInteger;
+import java.util.function.Function;
 import net.siisise.iso.asn1.tag.ASN1String;
 import net.siisise.iso.asn1.tag.BITSTRING;
 import net.siisise.iso.asn1.tag.BOOLEAN;
@@ -40,50 +41,66 @@ import net.siisise.iso.asn1.tag.SEQUENCEList;
  * 名前はXML型に利用する.
  */
 public enum ASN1 {
-    EndOfContent(0,EndOfContent.class),
-    BOOLEAN(0x01,BOOLEAN.class),
-    INTEGER(0x02,INTEGER.class),
-    BITSTRING(0x03,BITSTRING.class),
-    OCTETSTRING(0x04,OCTETSTRING.class),
-    NULL(0x05,NULL.class),
-    OBJECTIDENTIFIER(0x06,OBJECTIDENTIFIER.class),
-    ObjectDescriptor(0x07,null),
-    EXTERNAL(0x08,null), // External and Instance-of
-    REAL(0x09,REAL.class),
-    ENUMERATED(0x0A,null),
-    EMBEDDED_PDV(0x0B,null), // X.690
-    UTF8String(0x0C,ASN1String.class),
-    RELATIVE_OID(0x0D,null), // X.690
-    TIME(0x0e,null), // The time
-    UNDEF_0F(0x0f,null), // 予約済み
-    SEQUENCE(0x10,SEQUENCEList.class), // Sequence / Sequence-of
-    SET(0x11,SEQUENCEList.class), // Set / Set-of
-    NumericString(0x12,ASN1String.class),
-    PrintableString(0x13,ASN1String.class),
-    TeletexString(0x14,ASN1String.class), // 廃止?
-    VideotexString(0x15,null), // 廃止?
-    IA5String(0x16,ASN1String.class), // ASCII相当 ITU-T T.50 IRA 旧 IA5
-    UTCTime(0x17,ASN1String.class),
-    GeneralizedTime(0x18,GeneralizedTime.class), // 2050年以降
-    GraphicString(0x19,null),
-    VisibleString(0x1A,null),
-    GeneralString(0x1B,null),
-    UniversalString(0x1C,ASN1String.class), // UniversalString 廃止? UCS-4 String
-    CHARACTER_STRING(0x1d,null), // X.690
-    BMPString(0x1e,ASN1String.class), // UCS-2 廃止?
-    DATE(0x1f, null),
-    TIME_OF_DAY(0x20, null),
-    DATE_TIME(0x21, null),
-    DURATION_respectively(0x22,null),
-    OID_IRI(0x23, ASN1String.class),
-    RelativeOID_IRI(0x24, ASN1String.class);
+    EndOfContent(0,EndOfContent.class, a -> new EndOfContent()),
+    BOOLEAN(0x01,BOOLEAN.class, a -> new BOOLEAN()),
+    INTEGER(0x02,INTEGER.class, a -> new INTEGER()),
+    BITSTRING(0x03,BITSTRING.class, a -> new BITSTRING()),
+    OCTETSTRING(0x04,OCTETSTRING.class, a -> new OCTETSTRING()),
+    NULL(0x05,NULL.class, a -> new NULL(a)),
+    OBJECTIDENTIFIER(0x06,OBJECTIDENTIFIER.class, a -> new OBJECTIDENTIFIER()),
+    ObjectDescriptor(0x07,null, null),
+    EXTERNAL(0x08,null, null), // External and Instance-of
+    REAL(0x09,REAL.class, a -> new REAL()),
+    ENUMERATED(0x0A,null, null),
+    EMBEDDED_PDV(0x0B,null, null), // X.690
+    UTF8String(0x0C,ASN1String.class, a -> new ASN1String(a)),
+    RELATIVE_OID(0x0D,null, null), // X.690
+    TIME(0x0e,null, null), // The time
+    UNDEF_0F(0x0f,null, null), // 予約済み
+    SEQUENCE(0x10,SEQUENCEList.class, a -> new SEQUENCEList(ASN1Cls.UNIVERSAL, a.tag)), // Sequence / Sequence-of
+    SET(0x11,SEQUENCEList.class, a -> new SEQUENCEList(ASN1Cls.UNIVERSAL, a.tag)), // Set / Set-of
+    NumericString(0x12,ASN1String.class, a -> new ASN1String(a)),
+    PrintableString(0x13,ASN1String.class, a -> new ASN1String(a)),
+    TeletexString(0x14,ASN1String.class, a -> new ASN1String(a)), // 廃止?
+    VideotexString(0x15,null, null), // 廃止?
+    IA5String(0x16,ASN1String.class, a -> new ASN1String(a)), // ASCII相当 ITU-T T.50 IRA 旧 IA5
+    UTCTime(0x17,ASN1String.class, a -> new ASN1String(a)),
+    GeneralizedTime(0x18,GeneralizedTime.class, a -> new GeneralizedTime(a)), // 2050年以降
+    GraphicString(0x19,null, null),
+    VisibleString(0x1A,null, null),
+    GeneralString(0x1B,null, null),
+    UniversalString(0x1C,ASN1String.class, a -> new ASN1String(a)), // UniversalString 廃止? UCS-4 String
+    CHARACTER_STRING(0x1d,null, null), // X.690
+    BMPString(0x1e,ASN1String.class, a -> new ASN1String(a)), // UCS-2 廃止?
+    DATE(0x1f, null, null),
+    TIME_OF_DAY(0x20, null, null),
+    DATE_TIME(0x21, null, null),
+    DURATION_respectively(0x22,null, null),
+    OID_IRI(0x23, ASN1String.class, a -> new ASN1String(a)),
+    RelativeOID_IRI(0x24, ASN1String.class, a -> new ASN1String(a));
 
     public final BigInteger tag;
+    /**
+     * tag番号.
+     */
+    public final int id;
     Class<? extends ASN1Tag> coder;
+    /**
+     * 生成器.
+     * reflection を使わずに coder を生成する.
+     */
+    final Function<ASN1, ASN1Tag> factory;
 
-    ASN1(int id, Class<? extends ASN1Tag> dc) {
+    /**
+     * values() は毎回複製されるので保持しておく.
+     */
+    private static final ASN1[] VALUES = values();
+
+    ASN1(int id, Class<? extends ASN1Tag> dc, Function<ASN1, ASN1Tag> f) {
+        this.id = id;
         tag = BigInteger.valueOf(id);
         coder = dc;
+        factory = f;
     }
 
     /**
@@ -92,10 +109,19 @@ public enum ASN1 {
      * @return 該当タグ
      */
     public static ASN1 valueOf(int id) {
-        if (id > 0x24) {
+        if (id < 0 || id >= VALUES.length) {
             return null;
         }
-        return ASN1.values()[id];
+        return VALUES[id];
+    }
+
+    /**
+     * 型に対応する空のタグを生成する.
+     * デコーダ, XML 共通
+     * @return 空の ASN1Tag 対応していない型は null
+     */
+    ASN1Tag newInstance() {
+        return factory == null ? null : factory.apply(this);
     }
 
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import net.siisise.block.ReadableBlock;
+import net.siisise.io.Input;
+
+/**
+ * ストリームからデコードするときの内容の置き場.
+ * 要素ごとに byte[] を作らず、大きめの slab に詰めて切り出した ReadableBlock を渡す.
+ * 値に変換する型には slab の範囲をそのまま渡す.
+ * slab は参照されている間は残るので、同じ時期に捨てる文書ごとに使うとよい.
+ * スレッドセーフではない.
+ */
+public class ASN1Arena {
+
+    /**
+     * slab の大きさ (byte)
+     */
+    private final int slabSize;
+
+    private byte[] slab;
+    private ReadableBlock slabBlock;
+    private int offset;
+    /**
+     * 最後に切り出した内容と slab 上の位置
+     */
+    private ReadableBlock last;
+    private byte[] lastSlab;
+    private int lastOffset;
+
+    public ASN1Arena() {
+        this(64 * 1024);
+    }
+
+    /**
+     * @param slabSize slab 1つの大きさ
+     */
+    public ASN1Arena(int slabSize) {
+        this.slabSize = slabSize;
+    }
+
+    /**
+     * slab に読み込んで切り出す.
+     * slab の 1/4 を超える内容は単独で確保する.
+     * @param in 入力元
+     * @param len 長さ
+     * @return 内容
+     */
+    ReadableBlock read(Input in, int len) {
+        if (len > slabSize / 4) {
+            last = null;
+            return ASN1X690.subBlock(in, len);
+        }
+        if (slab == null || offset + len > slab.length) {
+            slab = new byte[slabSize];
+            slabBlock = ReadableBlock.wrap(slab);
+            offset = 0;
+        }
+        int r = 0;
+        while (r < len) {
+            int s = in.read(slab, offset + r, len - r);
+            if (s <= 0) {
+                throw new IllegalStateException("subBlock[" + r + "] require " + len);
+            }
+            r += s;
+        }
+        slabBlock.seek(offset);
+        ReadableBlock b = slabBlock.readBlock(len);
+        last = b;
+        lastSlab = slab;
+        lastOffset = offset;
+        offset += len;
+        return b;
+    }
+
+    /**
+     * 最後に切り出した内容を slab の範囲として渡す.
+     * 複製しない.
+     * @param in 内容
+     * @param length 長さ
+     * @param decoder 範囲のデコード
+     * @return 最後に切り出した未読の内容でなければ false
+     */
+    boolean contents(Input in, int length, ASN1X690.Contents decoder) {
+        if (in != last || last.length() != length) {
+            return false;
+        }
+        last = null;
+        decoder.decode(lastSlab, lastOffset, length);
+        if (in.skip(length) < length) {
+            throw new IllegalStateException("length " + length);
+        }
+        return true;
+    }
+
+    /**
+     * 以降は新しい slab を使う.
+     * 既に渡した内容はそのまま.
+     */
+    public void reset() {
+        slab = null;
+        slabBlock = null;
+        offset = 0;
+        last = null;
+        lastSlab = null;
+    }
+}
@@ -28,14 +28,19 @@ public enum ASN1Cls {
 
     final byte cls;
 
+    /**
+     * values() は毎回複製されるので保持しておく.
+     */
+    private static final ASN1Cls[] VALUES = values();
+
     ASN1Cls(int c) {
         cls = (byte) c;
     }
     
     public static ASN1Cls valueOf(int id) {
-        if (id >= 0x4) {
+        if (id < 0 || id >= 0x4) {
             return null;
         }
-        return ASN1Cls.values()[id];
+        return VALUES[id];
     }
 }
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+/**
+ * DER の厳密な確認.
+ * 木を作らず、符号化されたまま1回の走査で確認し、最初の誤りを位置つきで返す.
+ * X.690 10, 11 の制約のうち主なもの.
+ * <ul>
+ * <li>識別子 短い形で書ける tag の長い形, 先頭の 0x80</li>
+ * <li>長さ 不定長, 短い形で書ける長さの長い形, 先頭の 0</li>
+ * <li>BOOLEAN 0x00, 0xFF 以外</li>
+ * <li>INTEGER, ENUMERATED 最小でない符号化</li>
+ * <li>BIT STRING 未使用 bit が 0 でない</li>
+ * <li>OBJECT IDENTIFIER 最小でない subidentifier</li>
+ * <li>OCTET STRING, 文字列型, 時刻型 の構造型</li>
+ * <li>SET, SET OF 符号化の昇順でない</li>
+ * </ul>
+ */
+public class ASN1DERValidator {
+
+    private final byte[] src;
+    private final int maxDepth;
+
+    /**
+     * @param src DER
+     * @param options 深さの制限
+     */
+    ASN1DERValidator(byte[] src, DecoderOptions options) {
+        this.src = src;
+        maxDepth = options.getMaxDepth();
+    }
+
+    /**
+     * 確認.
+     * 連結された最上位の要素すべてを確認する.
+     * @param src DER
+     * @throws ASN1FormatException 最初の誤り
+     */
+    public static void validate(byte[] src) {
+        validate(src, new DecoderOptions());
+    }
+
+    /**
+     * 確認.
+     * @param src DER
+     * @param options 深さの制限
+     * @throws ASN1FormatException 最初の誤り
+     */
+    public static void validate(byte[] src, DecoderOptions options) {
+        ASN1DERValidator v = new ASN1DERValidator(src, options);
+        int p = 0;
+        while (p < src.length) {
+            p = v.element(p, src.length, 1);
+        }
+    }
+
+    /**
+     * 確認.
+     * @param src DER
+     * @return DER として正しい場合 true
+     */
+    public static boolean isValid(byte[] src) {
+        try {
+            validate(src);
+            return true;
+        } catch (ASN1FormatException e) {
+            return false;
+        }
+    }
+
+    private int u(int p, int limit, int start) {
+        if (p >= limit) {
+            throw new ASN1FormatException(start, "EOF");
+        }
+        return src[p] & 0xff;
+    }
+
+    /**
+     * 要素1つ.
+     * @param p 位置
+     * @param limit 親の終わり
+     * @param depth 深さ
+     * @return 要素の終わり
+     */
+    private int element(int p, int limit, int depth) {
+        int start = p;
+        if (depth > maxDepth) {
+            throw new ASN1FormatException(start, "depth " + depth);
+        }
+        int id = u(p++, limit, start);
+        boolean constructed = (id & 0x20) != 0;
+        long tag = id & 0x1f;
+        if (tag == 0x1f) {
+            int d = u(p++, limit, start);
+            if (d == 0x80) {
+                throw new ASN1FormatException(start, "tag padding");
+            }
+            tag = 0;
+            while (true) {
+                tag = (tag << 7) | (d & 0x7f);
+                if (tag > Integer.MAX_VALUE) {
+                    throw new ASN1FormatException(start, "tag");
+                }
+                if ((d & 0x80) == 0) {
+                    break;
+                }
+                d = u(p++, limit, start);
+            }
+            if (tag < 0x1f) {
+                throw new ASN1FormatException(start, "tag form");
+            }
+        }
+        int l = u(p++, limit, start);
+        long len;
+        if (l == 0x80) {
+            throw new ASN1FormatException(start, "indefinite length");
+        } else if (l > 0x80) {
+            int n = l & 0x7f;
+            if (n > 4) {
+                throw new ASN1FormatException(start, "length octets " + n);
+            }
+            if (u(p, limit, start) == 0) {
+                throw new ASN1FormatException(start, "length padding");
+            }
+            len = 0;
+            for (int i = 0; i < n; i++) {
+                len = (len << 8) | u(p++, limit, start);
+            }
+            if (len < 0x80) {
+                throw new ASN1FormatException(start, "length form");
+            }
+        } else {
+            len = l;
+        }
+        if (len > limit - p) {
+            throw new ASN1FormatException(start, "length " + len);
+        }
+        int end = p + (int) len;
+        if ((id & 0xc0) == 0) {
+            universal(start, (int) tag, constructed, p, end);
+        }
+        if (constructed) {
+            boolean set = (id & 0xc0) == 0 && tag == ASN1.SET.id;
+            int prev = -1;
+            int c = p;
+            while (c < end) {
+                int cs = c;
+                c = element(c, end, depth + 1);
+                if (set && prev >= 0 && compare(prev, cs, cs, c) > 0) {
+                    throw new ASN1FormatException(cs, "SET order");
+                }
+                prev = cs;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * UNIVERSAL の内容.
+     */
+    private void universal(int start, int tag, boolean constructed, int p, int end) {
+        int len = end - p;
+        ASN1 type = ASN1.valueOf(tag);
+        if (type == null) {
+            return;
+        }
+        switch (type) {
+            case EndOfContent:
+                throw new ASN1FormatException(start, "EndOfContent");
+            case SEQUENCE:
+            case SET:
+            case EXTERNAL:
+            case EMBEDDED_PDV:
+            case CHARACTER_STRING:
+                if (!constructed) {
+                    throw new ASN1FormatException(start, type.name() + " primitive");
+                }
+                return;
+            default:
+        }
+        if (constructed) { // DER の単一型は構造にしない
+            throw new ASN1FormatException(start, type.name() + " constructed");
+        }
+        switch (type) {
+            case BOOLEAN:
+                if (len != 1 || (src[p] != 0 && src[p] != (byte) 0xff)) {
+                    throw new ASN1FormatException(start, "BOOLEAN");
+                }
+                break;
+            case INTEGER:
+            case ENUMERATED:
+                if (len == 0) {
+                    throw new ASN1FormatException(start, type.name() + " length");
+                }
+                if (len > 1 && ((src[p] == 0 && src[p + 1] >= 0) || (src[p] == -1 && src[p + 1] < 0))) {
+                    throw new ASN1FormatException(start, type.name() + " padding");
+                }
+                break;
+            case BITSTRING:
+                if (len == 0 || (src[p] & 0xff) > 7 || (len == 1 && src[p] != 0)) {
+                    throw new ASN1FormatException(start, "BITSTRING unused bits");
+                }
+                if (len > 1 && (src[end - 1] & ((1 << src[p]) - 1)) != 0) {
+                    throw new ASN1FormatException(start, "BITSTRING unused bits not zero");
+                }
+                break;
+            case NULL:
+                if (len != 0) {
+                    throw new ASN1FormatException(start, "NULL length");
+                }
+                break;
+            case OBJECTIDENTIFIER:
+            case RELATIVE_OID:
+                if (len == 0 || src[end - 1] < 0) {
+                    throw new ASN1FormatException(start, type.name() + " length");
+                }
+                boolean first = true;
+                for (int i = p; i < end; i++) {
+                    if (first && src[i] == (byte) 0x80) {
+                        throw new ASN1FormatException(start, type.name() + " padding");
+                    }
+                    first = src[i] >= 0;
+                }
+                break;
+            case UTCTime:
+            case GeneralizedTime:
+                if (len == 0 || src[end - 1] != 'Z') {
+                    throw new ASN1FormatException(start, type.name() + " Z");
+                }
+                break;
+            default:
+        }
+    }
+
+    /**
+     * 符号化の比較.
+     * 短い方の後ろを 0 で埋めて比べる. X.690 11.6
+     */
+    private int compare(int a, int aEnd, int b, int bEnd) {
+        int len = Math.max(aEnd - a, bEnd - b);
+        for (int i = 0; i < len; i++) {
+            int x = a + i < aEnd ? src[a + i] & 0xff : 0;
+            int y = b + i < bEnd ? src[b + i] & 0xff : 0;
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import net.siisise.block.ReadableBlock;
+import net.siisise.iso.asn1.tag.ASN1DEREncoder;
+
+/**
+ * 要素の符号化の記憶.
+ * デコード時の符号化と、一度作った DER を持つ. 要素が変更されたら破棄する.
+ * デコード時の内容は複製せず元データを参照し、TLV の byte[] は最初に要求されたときに作る.
+ * ヘッダは読んだときの形 (長さの octet 数) のまま復元するので BER でも元と同じになる.
+ */
+public final class ASN1Encoded {
+
+    /**
+     * 符号化は持たないが、親の DER を記憶してから変更されていない.
+     */
+    static final ASN1Encoded UNCHANGED = new ASN1Encoded(null);
+
+    /**
+     * 識別子 1バイト目
+     */
+    private final int identifier;
+    /**
+     * tag 番号
+     */
+    private final long tag;
+    /**
+     * 長さの octet 数. 0 は短い形
+     */
+    private final int lengthOctets;
+    /**
+     * 内容
+     */
+    private ReadableBlock contents;
+    /**
+     * DER として正しい
+     */
+    final boolean der;
+
+    private byte[] encoded;
+    /**
+     * 作った DER
+     */
+    private volatile byte[] memo;
+
+    /**
+     * @param identifier 識別子 1バイト目
+     * @param tag tag 番号
+     * @param lengthOctets 長さの octet 数 0 は短い形
+     * @param contents 内容 位置 0 から
+     * @param der DER として正しい場合 true
+     */
+    ASN1Encoded(int identifier, long tag, int lengthOctets, ReadableBlock contents, boolean der) {
+        this.identifier = identifier;
+        this.tag = tag;
+        this.lengthOctets = lengthOctets;
+        this.contents = contents;
+        this.der = der;
+    }
+
+    /**
+     * 作った DER のみ.
+     * @param memo DER
+     */
+    private ASN1Encoded(byte[] memo) {
+        identifier = 0;
+        tag = 0;
+        lengthOctets = 0;
+        der = false;
+        this.memo = memo;
+    }
+
+    /**
+     * TLV.
+     * 作成後は内容の参照を外す.
+     * @return 元の TLV 複製しない
+     */
+    synchronized byte[] get() {
+        if (encoded == null && contents != null) {
+            int len = (int) contents.length();
+            boolean high = (identifier & 0x1f) == 0x1f;
+            int h = (high ? 1 + tagOctets(tag) : 1) + 1 + lengthOctets;
+            byte[] d = new byte[h + len];
+            int p = 0;
+            d[p++] = (byte) identifier;
+            if (high) {
+                int n = tagOctets(tag);
+                for (int i = n - 1; i > 0; i--) {
+                    d[p++] = (byte) (0x80 | (tag >>> (7 * i)));
+                }
+                d[p++] = (byte) (tag & 0x7f);
+            }
+            if (lengthOctets == 0) {
+                d[p++] = (byte) len;
+            } else {
+                d[p++] = (byte) (0x80 | lengthOctets);
+                for (int i = lengthOctets - 1; i >= 0; i--) {
+                    d[p++] = (byte) (i >= 4 ? 0 : len >>> (8 * i));
+                }
+            }
+            contents.seek(0);
+            contents.read(d, p, len);
+            contents = null;
+            encoded = d;
+        }
+        return encoded;
+    }
+
+    /**
+     * DER.
+     * @return デコード時の DER または 作った DER 持たない場合 null
+     */
+    byte[] der() {
+        return der ? get() : memo;
+    }
+
+    /**
+     * 記憶した DER.
+     * 変更されていない要素は一度だけ符号化する. SET OF の並べ替え, compareTo で使う.
+     * @param t 要素
+     * @return DER 複製しないので変更しないこと
+     */
+    public static byte[] der(ASN1Tag t) {
+        byte[] d = t.getEncodedDER();
+        if (d == null) {
+            d = new ASN1DEREncoder().encode(t);
+            memo(t, d);
+        }
+        return d;
+    }
+
+    /**
+     * DER を記憶する.
+     * ASN1Object, ASN1StructList のみ.
+     * @param t 要素
+     * @param d t の DER
+     */
+    static void memo(ASN1Tag t, byte[] d) {
+        if (t instanceof ASN1Object) {
+            ASN1Object o = (ASN1Object) t;
+            o.encoded = memo(o.encoded, d);
+        } else if (t instanceof ASN1StructList) {
+            ASN1StructList l = (ASN1StructList) t;
+            l.encoded = l.mark() ? memo(l.encoded, d) : new ASN1Encoded(d);
+        }
+    }
+
+    private static ASN1Encoded memo(ASN1Encoded e, byte[] d) {
+        if (e == null || e == UNCHANGED) {
+            return new ASN1Encoded(d);
+        }
+        e.memo = d;
+        return e;
+    }
+
+    /**
+     * 変更の検出を始める.
+     * 符号化を持たない ASN1Object, ASN1StructList を変更なしにする. 以降に変更されると isUnmodified は false になる.
+     * @param t 要素
+     * @return 変更を検出できる場合 true
+     */
+    public static boolean watch(Object t) {
+        if (t instanceof ASN1Object) {
+            ASN1Object o = (ASN1Object) t;
+            if (o.encoded == null) {
+                o.encoded = UNCHANGED;
+            }
+        } else if (t instanceof ASN1StructList) {
+            ((ASN1StructList) t).mark();
+        }
+        return of(t) != null;
+    }
+
+    /**
+     * watch 以降, デコード以降に変更されていないか.
+     * @param t 要素
+     * @return 変更されていない場合 true 検出できない型は false
+     */
+    public static boolean isUnmodified(Object t) {
+        return of(t) != null;
+    }
+
+    /**
+     * tag 番号の octet 数 (長い形).
+     */
+    static int tagOctets(long tag) {
+        int n = 1;
+        while ((tag >>>= 7) != 0) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * 変更されていない符号化を持つか.
+     * 構造はデコード済みの子もすべて変更されていない場合のみ.
+     * @param t 要素
+     * @return 保持している符号化 変更済み または 持たない場合 null
+     */
+    static ASN1Encoded of(Object t) {
+        if (t instanceof ASN1Object) {
+            return ((ASN1Object) t).encoded;
+        } else if (t instanceof ASN1StructList) {
+            return ((ASN1StructList) t).unmodified();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+/**
+ * 符号化の誤り.
+ * 位置つき.
+ */
+public class ASN1FormatException extends IllegalStateException {
+
+    private final long offset;
+
+    /**
+     * @param offset 誤りのある要素の位置
+     * @param message 内容
+     */
+    public ASN1FormatException(long offset, String message) {
+        super(message + " at " + offset);
+        this.offset = offset;
+    }
+
+    /**
+     * 位置.
+     * @return 入力先頭からの位置
+     */
+    public long getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import net.siisise.block.ReadableBlock;
+
+/**
+ * Push 型のデコード (SAX 風).
+ * ASN1X690.parse から呼ばれる. ASN1Tag は生成しない.
+ * tag は long に収まらない場合 -1.
+ */
+public interface ASN1Handler {
+
+    /**
+     * 構造の開始.
+     * @param cls class
+     * @param tag tag番号
+     * @param length 内容の長さ -1 は不定長
+     * @return false のとき内容を読み飛ばす (endConstructed も呼ばない)
+     */
+    default boolean startConstructed(ASN1Cls cls, long tag, long length) {
+        return true;
+    }
+
+    /**
+     * 構造の終了.
+     * @param cls class
+     * @param tag tag番号
+     */
+    default void endConstructed(ASN1Cls cls, long tag) {
+    }
+
+    /**
+     * 単一型.
+     * contents は入力の参照なので、呼び出しの外で使う場合は複製すること.
+     * ReadableBlock 以外の入力元では内容を複製したもの.
+     * @param cls class
+     * @param tag tag番号
+     * @param contents 内容
+     */
+    void primitive(ASN1Cls cls, long tag, ReadableBlock contents);
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * ノンブロッキング入力用の BER 分割デコーダ.
+ * 届いた分の ByteBuffer を渡すと、途中の状態 (識別子, 長さ, 不定長の入れ子) を保持し、
+ * 最上位の TLV が揃ったところで取り出せるようにする.
+ *
+ * <pre>
+ * dec.feed(buf);
+ * byte[] frame;
+ * while ((frame = dec.pollFrame()) != null) { // 分割のみ
+ *     queue.put(frame); // worker 側で ASN1Util.toASN1(frame)
+ * }
+ * </pre>
+ *
+ * pollFrame() のみ使う場合 (frame mode) はデコードを行わない.
+ * poll() は取り出すときに ASN1Tag へデコードする.
+ * スレッドセーフではない.
+ */
+public class ASN1IncrementalDecoder {
+
+    private static final int IDENTIFIER = 0;
+    private static final int TAG = 1;
+    private static final int LENGTH = 2;
+    private static final int LENGTH_OCTETS = 3;
+    private static final int CONTENTS = 4;
+
+    private int state = IDENTIFIER;
+    private int identifier;
+    /**
+     * 長さの残りバイト数
+     */
+    private int lengthOctets;
+    private long length;
+    /**
+     * 内容の残り
+     */
+    private long remaining;
+    /**
+     * 不定長の入れ子.
+     * 定長の構造は内容をまとめて読み飛ばすので数えない
+     */
+    private int nest;
+
+    /**
+     * 読みかけの frame
+     */
+    private byte[] buf = new byte[256];
+    private int count;
+    private final int maxFrame;
+
+    private final ArrayDeque<byte[]> frames = new ArrayDeque<>();
+
+    /**
+     * frame の上限なし.
+     */
+    public ASN1IncrementalDecoder() {
+        this(Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * @param maxFrame 1 frame の上限 (byte)
+     */
+    public ASN1IncrementalDecoder(int maxFrame) {
+        this.maxFrame = maxFrame;
+    }
+
+    /**
+     * 受信したデータを渡す.
+     * src はすべて読む.
+     * @param src 受信データ
+     * @return 取り出せる frame の数
+     */
+    public int feed(ByteBuffer src) {
+        while (src.hasRemaining()) {
+            if (state == CONTENTS) {
+                int n = (int) Math.min(remaining, src.remaining());
+                ensure(n);
+                src.get(buf, count, n);
+                count += n;
+                remaining -= n;
+                if (remaining == 0) {
+                    end();
+                }
+                continue;
+            }
+            int b = src.get() & 0xff;
+            ensure(1);
+            buf[count++] = (byte) b;
+            switch (state) {
+                case IDENTIFIER:
+                    identifier = b;
+                    state = (b & 0x1f) == 0x1f ? TAG : LENGTH;
+                    break;
+                case TAG:
+                    if ((b & 0x80) == 0) {
+                        state = LENGTH;
+                    }
+                    break;
+                case LENGTH:
+                    if (b < 0x80) {
+                        length = b;
+                        header();
+                    } else if (b == 0x80) {
+                        length = -1;
+                        header();
+                    } else {
+                        lengthOctets = b & 0x7f;
+                        if (lengthOctets > 8) {
+                            throw new IllegalStateException("length octets " + lengthOctets);
+                        }
+                        length = 0;
+                        state = LENGTH_OCTETS;
+                    }
+                    break;
+                case LENGTH_OCTETS:
+                    length = (length << 8) | b;
+                    if (--lengthOctets == 0) {
+                        if (length < 0) {
+                            throw new IllegalStateException("length");
+                        }
+                        header();
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+        return frames.size();
+    }
+
+    /**
+     * 識別子と長さが揃った.
+     */
+    private void header() {
+        if (identifier == 0 && length == 0) { // EndOfContent
+            if (nest == 0) {
+                throw new IllegalStateException("EOC");
+            }
+            nest--;
+            end();
+        } else if (length < 0) {
+            if ((identifier & 0x20) == 0) { // primitive の不定長は不可
+                throw new IllegalStateException("length " + length);
+            }
+            nest++;
+            state = IDENTIFIER;
+        } else if (length == 0) {
+            end();
+        } else {
+            if (count + length > maxFrame) {
+                throw new IllegalStateException("frame length " + (count + length));
+            }
+            remaining = length;
+            state = CONTENTS;
+        }
+    }
+
+    /**
+     * TLV が1つ終わった.
+     */
+    private void end() {
+        state = IDENTIFIER;
+        if (nest == 0) {
+            frames.add(Arrays.copyOf(buf, count));
+            count = 0;
+        }
+    }
+
+    private void ensure(int n) {
+        if (count + n > buf.length) {
+            if ((long) count + n > maxFrame) {
+                throw new IllegalStateException("frame length " + ((long) count + n));
+            }
+            buf = Arrays.copyOf(buf, (int) Math.min(maxFrame, Math.max((long) buf.length * 2, count + n)));
+        }
+    }
+
+    /**
+     * 揃った TLV を1つ取り出す.
+     * @return 最上位の TLV 1つ分 または null
+     */
+    public byte[] pollFrame() {
+        return frames.poll();
+    }
+
+    /**
+     * 揃った TLV を1つデコードして取り出す.
+     * @return ASN.1 Object または null
+     */
+    public ASN1Tag poll() {
+        byte[] frame = frames.poll();
+        return frame == null ? null : ASN1Util.toASN1(frame);
+    }
+
+    /**
+     * 読みかけの TLV があるか.
+     * @return 途中で切れている場合 true
+     */
+    public boolean isPartial() {
+        return count > 0;
+    }
+
+    /**
+     * 状態を破棄する.
+     */
+    public void reset() {
+        state = IDENTIFIER;
+        nest = 0;
+        count = 0;
+        frames.clear();
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import net.siisise.block.ReadableBlock;
+import net.siisise.iso.asn1.tag.OBJECTIDENTIFIER;
+
+/**
+ * BER / DER の構造索引 (tape).
+ * 1回の走査で要素ごとの位置, ヘッダ長, 内容長, 識別子, tag, 親, 次の兄弟を配列に記録する.
+ * 要素は出現順の番号 (node) で指し、node ごとのオブジェクトは作らない.
+ * 何度も同じ文書を参照する場合にデコードせずに値を読む.
+ *
+ * <pre>
+ * ASN1Index idx = new ASN1Index(der);
+ * int tbs = idx.child(0, 0);
+ * int serial = idx.child(tbs, 1);
+ * long n = idx.readLong(serial);
+ * </pre>
+ */
+public class ASN1Index {
+
+    /**
+     * identifier の不定長フラグ
+     */
+    static final int INDEFINITE = 0x100;
+
+    private final byte[] src;
+    private final DecoderOptions options;
+    private int size;
+
+    private int[] offset;
+    private int[] headerLength;
+    private int[] contentsLength;
+    /**
+     * 識別子の1バイト目 と INDEFINITE
+     */
+    private int[] identifier;
+    /**
+     * tag番号 int に収まらない場合は -1
+     */
+    private int[] tag;
+    private int[] parent;
+    private int[] next;
+
+    /**
+     * 索引をつくる.
+     * @param src BER / DER 連結も可 参照中は変更しないこと
+     */
+    public ASN1Index(byte[] src) {
+        this(src, new DecoderOptions());
+    }
+
+    /**
+     * 制限つきの索引.
+     * 構造の深さ, 内容の長さ, 構造の要素数を確認する.
+     * @param src BER / DER 連結も可 参照中は変更しないこと
+     * @param options 制限
+     */
+    public ASN1Index(byte[] src, DecoderOptions options) {
+        this.src = src;
+        this.options = options;
+        int cap = Math.max(16, src.length / 8);
+        offset = new int[cap];
+        headerLength = new int[cap];
+        contentsLength = new int[cap];
+        identifier = new int[cap];
+        tag = new int[cap];
+        parent = new int[cap];
+        next = new int[cap];
+        scan();
+    }
+
+    private void scan() {
+        ASN1X690 x690 = new ASN1X690BER(options);
+        ReadableBlock in = ReadableBlock.wrap(src);
+        int[] stack = new int[16];
+        int[] last = new int[17];
+        int[] count = new int[17];
+        int sp = 0;
+        last[0] = -1;
+        while (true) {
+            int pos = (int) (src.length - in.length());
+            while (sp > 0) { // 定長の構造の終わり
+                int p = stack[sp - 1];
+                if ((identifier[p] & INDEFINITE) != 0) {
+                    break;
+                }
+                int end = offset[p] + headerLength[p] + contentsLength[p];
+                if (pos < end) {
+                    break;
+                } else if (pos > end) {
+                    throw new IllegalStateException("length " + offset[p]);
+                }
+                sp--;
+            }
+            if (in.length() == 0) {
+                if (sp > 0) {
+                    throw new IllegalStateException("EOF");
+                }
+                break;
+            }
+            int id = in.read();
+            long tagNo = ASN1X690.readIdentifier(id, in).tag;
+            long len = x690.readLength(in);
+            int hlen = (int) (src.length - in.length()) - pos;
+            if (id == 0 && len == 0) { // EndOfContent
+                if (sp == 0 || (identifier[stack[sp - 1]] & INDEFINITE) == 0) {
+                    throw new IllegalStateException("EOC " + pos);
+                }
+                int p = stack[--sp];
+                contentsLength[p] = pos - offset[p] - headerLength[p];
+                continue;
+            }
+            if (len > in.length()) {
+                throw new IllegalStateException("length " + len);
+            }
+            int n = add(pos, hlen, len, id, tagNo, sp > 0 ? stack[sp - 1] : -1);
+            if (last[sp] >= 0) {
+                next[last[sp]] = n;
+            }
+            last[sp] = n;
+            if (sp > 0 && ++count[sp] > options.getMaxChildren()) {
+                throw new IllegalStateException("children " + count[sp]);
+            }
+            if ((id & 0x20) != 0) {
+                if (sp + 1 > options.getMaxDepth()) {
+                    throw new IllegalStateException("depth " + (sp + 1));
+                }
+                if (sp == stack.length) {
+                    stack = Arrays.copyOf(stack, sp * 2);
+                    last = Arrays.copyOf(last, sp * 2 + 1);
+                    count = Arrays.copyOf(count, sp * 2 + 1);
+                }
+                stack[sp++] = n;
+                last[sp] = -1;
+                count[sp] = 0;
+            } else if (len < 0) {
+                throw new IllegalStateException("length " + len);
+            } else {
+                in.skip(len);
+            }
+        }
+    }
+
+    private int add(int pos, int hlen, long len, int id, long tagNo, int p) {
+        if (size == offset.length) {
+            int cap = size * 2;
+            offset = Arrays.copyOf(offset, cap);
+            headerLength = Arrays.copyOf(headerLength, cap);
+            contentsLength = Arrays.copyOf(contentsLength, cap);
+            identifier = Arrays.copyOf(identifier, cap);
+            tag = Arrays.copyOf(tag, cap);
+            parent = Arrays.copyOf(parent, cap);
+            next = Arrays.copyOf(next, cap);
+        }
+        offset[size] = pos;
+        headerLength[size] = hlen;
+        contentsLength[size] = (int) len;
+        identifier[size] = len < 0 ? id | INDEFINITE : id;
+        tag[size] = tagNo >= 0 && tagNo <= Integer.MAX_VALUE ? (int) tagNo : -1;
+        parent[size] = p;
+        next[size] = -1;
+        return size++;
+    }
+
+    /**
+     * 要素数.
+     * @return node の数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 親.
+     * @param node 要素
+     * @return 親 最上位は -1
+     */
+    public int parent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * 次の兄弟.
+     * @param node 要素
+     * @return 次の要素 ない場合は -1
+     */
+    public int nextSibling(int node) {
+        return next[node];
+    }
+
+    /**
+     * 最初の子.
+     * 子は親の直後に並ぶ.
+     * @param node 構造
+     * @return 子 ない場合は -1
+     */
+    public int firstChild(int node) {
+        int c = node + 1;
+        return c < size && parent[c] == node ? c : -1;
+    }
+
+    /**
+     * i番目の子.
+     * @param node 構造
+     * @param i 0から
+     * @return 子 ない場合は -1
+     */
+    public int child(int node, int i) {
+        int c = firstChild(node);
+        while (c >= 0 && i-- > 0) {
+            c = next[c];
+        }
+        return c;
+    }
+
+    /**
+     * 子の数.
+     * @param node 構造
+     * @return 子の数
+     */
+    public int childCount(int node) {
+        int count = 0;
+        for (int c = firstChild(node); c >= 0; c = next[c]) {
+            count++;
+        }
+        return count;
+    }
+
+    public int offset(int node) {
+        return offset[node];
+    }
+
+    public int headerLength(int node) {
+        return headerLength[node];
+    }
+
+    public int contentsOffset(int node) {
+        return offset[node] + headerLength[node];
+    }
+
+    /**
+     * 内容の長さ.
+     * 不定長の場合は EndOfContent を含まない長さ
+     * @param node 要素
+     * @return 長さ
+     */
+    public int contentsLength(int node) {
+        return contentsLength[node];
+    }
+
+    public ASN1Cls getASN1Cls(int node) {
+        return ASN1Cls.valueOf((identifier[node] >> 6) & 0x03);
+    }
+
+    public boolean isConstructed(int node) {
+        return (identifier[node] & 0x20) != 0;
+    }
+
+    public boolean isIndefinite(int node) {
+        return (identifier[node] & INDEFINITE) != 0;
+    }
+
+    /**
+     * tag番号.
+     * @param node 要素
+     * @return tag番号 int に収まらない場合は -1
+     */
+    public int tagNumber(int node) {
+        return tag[node];
+    }
+
+    /**
+     * 内容の参照.
+     * @param node 要素
+     * @return 複製しない内容
+     */
+    public ReadableBlock contents(int node) {
+        ReadableBlock rb = ReadableBlock.wrap(src);
+        rb.seek(contentsOffset(node));
+        return rb.readBlock(contentsLength[node]);
+    }
+
+    /**
+     * 内容の複製.
+     * @param node 要素
+     * @return 内容
+     */
+    public byte[] readBytes(int node) {
+        int off = contentsOffset(node);
+        return Arrays.copyOfRange(src, off, off + contentsLength[node]);
+    }
+
+    /**
+     * INTEGER を BigInteger を使わずに読む.
+     * @param node 要素
+     * @return 値
+     * @throws ArithmeticException long に収まらない場合
+     */
+    public long readLong(int node) {
+        int off = contentsOffset(node);
+        int len = contentsLength[node];
+        if (isConstructed(node) || len == 0 || len > 8) {
+            throw new ArithmeticException("INTEGER length " + len);
+        }
+        long v = src[off]; // 符号拡張
+        for (int i = 1; i < len; i++) {
+            v = (v << 8) | (src[off + i] & 0xff);
+        }
+        return v;
+    }
+
+    /**
+     * INTEGER.
+     * @param node 要素
+     * @return 値
+     */
+    public BigInteger readInteger(int node) {
+        return new BigInteger(readBytes(node));
+    }
+
+    /**
+     * OBJECT IDENTIFIER.
+     * @param node 要素
+     * @return ドット区切りの OID
+     */
+    public String readOID(int node) {
+        OBJECTIDENTIFIER oid = new OBJECTIDENTIFIER();
+        oid.decodeBody(readBytes(node));
+        return oid.getValue();
+    }
+
+    /**
+     * 要素を ASN1Tag にデコードする.
+     * @param node 要素
+     * @return ASN.1 Object
+     */
+    public ASN1Tag decode(int node) {
+        ReadableBlock rb = ReadableBlock.wrap(src);
+        rb.seek(offset[node]);
+        return new ASN1X690BER(options).decode(rb);
+    }
+}
@@ -0,0 +1,514 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import net.siisise.block.ReadableBlock;
+import net.siisise.io.StreamFrontPacket;
+import net.siisise.iso.asn1.tag.BITSTRING;
+import net.siisise.iso.asn1.tag.OCTETSTRING;
+
+/**
+ * メモリマップした BER / DER ファイル.
+ * ファイルは窓単位で map し、heap には読み込まない.
+ * 要素は先頭からの位置 (offset) で指定し、内容は map の ByteBuffer 参照として取り出す.
+ * ASN1Tag にする場合も OCTETSTRING, BITSTRING は map を参照する.
+ *
+ * <pre>
+ * try (ASN1MappedFile f = ASN1Util.map(path)) {
+ *     long tbs = f.child(0); // CertificateList.tbsCertList
+ *     for (long p = f.child(tbs); p &gt;= 0; p = f.next(tbs, p)) { ... }
+ * }
+ * </pre>
+ *
+ * 窓は生成時にすべて map する. 読み取りのみなので複数スレッドから参照してもよい.
+ * ASN1Util.map で開いた場合は構造を遅延デコードする. 順に読む場合は reader を使う.
+ */
+public class ASN1MappedFile implements Closeable {
+
+    /**
+     * map の窓の大きさ.
+     */
+    static final long WINDOW = 1L << 30;
+
+    private final FileChannel ch;
+    private final long size;
+    private final MappedByteBuffer[] windows;
+    private DecoderOptions options = new DecoderOptions();
+    /**
+     * 構造の要素を参照時にデコードする.
+     */
+    private boolean lazy;
+
+    /**
+     * 識別子と長さの読み取り結果.
+     */
+    private static class Header {
+        /**
+         * 識別子のバイト数
+         */
+        int identifierLength;
+        /**
+         * 識別子と長さのバイト数
+         */
+        int headerLength;
+        /**
+         * 内容の長さ -1 不定長
+         */
+        long length;
+    }
+
+    /**
+     * 読み込み専用で map する.
+     * @param path ファイル
+     * @throws IOException
+     */
+    public ASN1MappedFile(Path path) throws IOException {
+        ch = FileChannel.open(path, StandardOpenOption.READ);
+        size = ch.size();
+        windows = new MappedByteBuffer[(int) ((size + WINDOW - 1) / WINDOW)];
+        try { // 複数スレッドから参照するので先に map しておく
+            for (int w = 0; w < windows.length; w++) {
+                long start = w * WINDOW;
+                windows[w] = ch.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, size - start));
+            }
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /**
+     * decode 時の制限.
+     * @param options 制限
+     */
+    public void setOptions(DecoderOptions options) {
+        this.options = options;
+    }
+
+    public DecoderOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * 遅延デコードの切り替え.
+     * 構造は map 上の位置のみ持ち、要素は参照されたときにデコードする.
+     * 展開はスレッドセーフではないので注意.
+     * @param lazy true 構造の要素を参照時にデコードする
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * ファイルの大きさ.
+     * @return byte
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 1 byte 読む.
+     * @param pos 位置
+     * @return 値 範囲外は -1
+     */
+    public int get(long pos) {
+        if (pos < 0 || pos >= size) {
+            return -1;
+        }
+        return windows[(int) (pos / WINDOW)].get((int) (pos % WINDOW)) & 0xff;
+    }
+
+    /**
+     * 範囲の参照.
+     * 窓内であれば複製せずに切り出す. 窓をまたぐ場合はその範囲を別に map する.
+     * @param offset 位置
+     * @param len 長さ
+     * @return 読み込み専用の ByteBuffer
+     */
+    public ByteBuffer slice(long offset, long len) {
+        if (offset < 0 || len < 0 || offset + len > size) {
+            throw new IllegalStateException("slice " + offset + " " + len);
+        }
+        if (len > Integer.MAX_VALUE) {
+            throw new UnsupportedOperationException("length " + len);
+        }
+        try {
+            int w = (int) (offset / WINDOW);
+            long start = w * WINDOW;
+            if (offset + len <= start + WINDOW) {
+                ByteBuffer bb = windows[w].duplicate();
+                bb.position((int) (offset - start));
+                bb.limit((int) (offset - start + len));
+                return bb.slice().asReadOnlyBuffer();
+            }
+            return ch.map(FileChannel.MapMode.READ_ONLY, offset, len).asReadOnlyBuffer();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 識別子と長さを読む.
+     * @param offset 要素の位置
+     * @return 読み取り結果
+     */
+    private Header header(long offset) {
+        int identifier = get(offset);
+        if (identifier < 0) {
+            throw new IllegalStateException("EOF");
+        }
+        long pos = offset + 1;
+        if ((identifier & 0x1f) == 0x1f) {
+            int d;
+            do {
+                d = get(pos++);
+                if (d < 0) {
+                    throw new IllegalStateException("tag EOF");
+                }
+            } while ((d & 0x80) != 0);
+        }
+        Header h = new Header();
+        h.identifierLength = (int) (pos - offset);
+        long length;
+        int l = get(pos++);
+        if (l < 0) {
+            throw new IllegalStateException("length EOF");
+        } else if (l == 0x80) {
+            length = -1;
+        } else if (l > 0x80) {
+            int n = l & 0x7f;
+            if (n > 8) {
+                throw new IllegalStateException("length octets " + n);
+            }
+            long len = 0;
+            for (int i = 0; i < n; i++) {
+                int d = get(pos++);
+                if (d < 0) {
+                    throw new IllegalStateException("length EOF");
+                }
+                len = (len << 8) | d;
+            }
+            if (len < 0) {
+                throw new IllegalStateException("length");
+            }
+            length = len;
+        } else {
+            length = l;
+        }
+        if ((identifier & 0x20) == 0 && length > options.getMaxLength()) { // 構造は map 上でたどるのでファイルの大きさまで
+            throw new IllegalStateException("length " + length);
+        }
+        if (length >= 0 && length > size - pos) { // pos + length は溢れることがある
+            throw new IllegalStateException("length " + length);
+        }
+        h.headerLength = (int) (pos - offset);
+        h.length = length;
+        return h;
+    }
+
+    /**
+     * 識別子の1バイト目.
+     * @param offset 要素の位置
+     * @return cls, constructed, tag (0x1f は長いタグ)
+     */
+    public int identifier(long offset) {
+        return get(offset);
+    }
+
+    /**
+     * tag番号.
+     * @param offset 要素の位置
+     * @return tag番号 int に収まらない場合は -1
+     */
+    public int tagNumber(long offset) {
+        int identifier = get(offset);
+        if ((identifier & 0x1f) != 0x1f) {
+            return identifier & 0x1f;
+        }
+        long tag = 0;
+        long pos = offset + 1;
+        int d;
+        do {
+            d = get(pos++);
+            if (d < 0) {
+                throw new IllegalStateException("tag EOF");
+            }
+            tag = (tag << 7) | (d & 0x7f);
+            if (tag > Integer.MAX_VALUE) {
+                return -1;
+            }
+        } while ((d & 0x80) != 0);
+        return (int) tag;
+    }
+
+    /**
+     * 内容の長さ.
+     * @param offset 要素の位置
+     * @return 長さ -1 は不定長
+     */
+    public long contentsLength(long offset) {
+        return header(offset).length;
+    }
+
+    /**
+     * 内容の位置.
+     * @param offset 要素の位置
+     * @return 内容の先頭
+     */
+    public long contentsOffset(long offset) {
+        return offset + header(offset).headerLength;
+    }
+
+    /**
+     * 要素の終わり.
+     * 不定長の場合は EndOfContent まで読み飛ばす.
+     * @param offset 要素の位置
+     * @return 次の要素の位置
+     */
+    public long end(long offset) {
+        return end(offset, 0);
+    }
+
+    /**
+     * @param offset 要素の位置
+     * @param depth 外側の不定長の深さ
+     * @return 次の要素の位置
+     */
+    private long end(long offset, int depth) {
+        Header h = header(offset);
+        long pos = offset + h.headerLength;
+        if (h.length >= 0) {
+            return pos + h.length;
+        }
+        if (depth + 1 > options.getMaxDepth()) {
+            throw new IllegalStateException("depth " + (depth + 1));
+        }
+        while (true) {
+            if (get(pos) == 0 && get(pos + 1) == 0) {
+                return pos + 2;
+            }
+            pos = end(pos, depth + 1);
+        }
+    }
+
+    /**
+     * 最初の子要素.
+     * @param offset 構造の位置
+     * @return 子の位置 空の場合は -1
+     */
+    public long child(long offset) {
+        if ((get(offset) & 0x20) == 0) {
+            throw new IllegalStateException("primitive");
+        }
+        Header h = header(offset);
+        long pos = offset + h.headerLength;
+        if (h.length == 0 || (h.length < 0 && get(pos) == 0 && get(pos + 1) == 0)) {
+            return -1;
+        }
+        return pos;
+    }
+
+    /**
+     * 同じ構造内の次の要素.
+     * @param parent 構造の位置
+     * @param offset 要素の位置
+     * @return 次の要素の位置 終わりの場合は -1
+     */
+    public long next(long parent, long offset) {
+        Header h = header(parent);
+        long parentEnd = h.length < 0 ? -1 : parent + h.headerLength + h.length;
+        long pos = end(offset);
+        if (parentEnd >= 0 ? pos >= parentEnd : (get(pos) == 0 && get(pos + 1) == 0)) {
+            return -1;
+        }
+        return pos;
+    }
+
+    /**
+     * 最上位の次の要素.
+     * @param offset 要素の位置
+     * @return 次の要素の位置 ファイルの終わりの場合は -1
+     */
+    public long next(long offset) {
+        long pos = end(offset);
+        return pos < size ? pos : -1;
+    }
+
+    /**
+     * 単一型の内容.
+     * map の参照なので複製しない.
+     * @param offset 要素の位置
+     * @return 内容
+     */
+    public ByteBuffer contents(long offset) {
+        Header h = header(offset);
+        if (h.length < 0) {
+            throw new IllegalStateException("length " + h.length);
+        }
+        return slice(offset + h.headerLength, h.length);
+    }
+
+    /**
+     * TLV 全体.
+     * @param offset 要素の位置
+     * @return 識別子から内容の終わりまで
+     */
+    public ByteBuffer element(long offset) {
+        return slice(offset, end(offset) - offset);
+    }
+
+    /**
+     * 要素を ASN1Tag にデコードする.
+     * 構造は map 上でたどって子要素ごとにデコードする.
+     * UNIVERSAL の OCTETSTRING, BITSTRING は map の参照になり heap に読み込まない.
+     * その他の単一型はその要素の TLV のみ複製してデコードする.
+     * 大きな構造は child, next でたどって必要な要素のみデコードするとよい.
+     * 遅延デコードの場合、構造の要素は参照されたときに map 上でたどってデコードする.
+     * @param offset 要素の位置
+     * @return ASN.1 Object
+     */
+    public ASN1Tag decode(long offset) {
+        return decode(offset, 0);
+    }
+
+    /**
+     * @param offset 要素の位置
+     * @param depth 親の深さ
+     * @return ASN.1 Object
+     */
+    ASN1Tag decode(long offset, int depth) {
+        int identifier = get(offset);
+        Header h = header(offset);
+        ASN1X690BER ber = new ASN1X690BER();
+        ber.setOptions(options);
+        if ((identifier & 0x20) != 0) {
+            if (depth + 1 > options.getMaxDepth()) {
+                throw new IllegalStateException("depth " + (depth + 1));
+            }
+            // 識別子のみ 長さ 0 で型を決める
+            byte[] shell = new byte[h.identifierLength + 1];
+            slice(offset, h.identifierLength).get(shell, 0, h.identifierLength);
+            ASN1Struct<ASN1Tag> struct = (ASN1Struct<ASN1Tag>) ber.decode(ReadableBlock.wrap(shell));
+            struct.setInefinite(h.length < 0);
+            if (lazy && struct instanceof ASN1StructList) {
+                ((ASN1StructList) struct).lazy(this, offset, depth + 1);
+                return struct;
+            }
+            int size = 0;
+            for (long p = child(offset); p >= 0; p = next(offset, p)) {
+                if (++size > options.getMaxChildren()) {
+                    throw new IllegalStateException("children " + size);
+                }
+                struct.add(decode(p, depth + 1));
+            }
+            return struct;
+        } else if ((identifier & 0xc0) == 0 && h.length >= 0) {
+            int tag = identifier & 0x1f;
+            if (tag == ASN1.OCTETSTRING.id) {
+                OCTETSTRING os = new OCTETSTRING();
+                os.view(contents(offset));
+                return os;
+            } else if (tag == ASN1.BITSTRING.id) {
+                BITSTRING bs = new BITSTRING();
+                bs.view(contents(offset));
+                return bs;
+            }
+        }
+        ByteBuffer bb = element(offset);
+        byte[] data = new byte[bb.remaining()];
+        bb.get(data);
+        return ber.decode(ReadableBlock.wrap(data));
+    }
+
+    /**
+     * 位置から読む Pull 型 Reader.
+     * map を順に読むので heap には読み込まない.
+     * @param offset 読み始める位置
+     * @return Reader
+     */
+    public ASN1Reader reader(long offset) {
+        return new ASN1Reader(new StreamFrontPacket(new MappedInputStream(offset)), options);
+    }
+
+    /**
+     * map を順に読む InputStream.
+     */
+    private class MappedInputStream extends InputStream {
+        private long pos;
+
+        MappedInputStream(long offset) {
+            if (offset < 0 || offset > size) {
+                throw new IllegalStateException("offset " + offset);
+            }
+            pos = offset;
+        }
+
+        @Override
+        public int read() {
+            int d = get(pos);
+            if (d >= 0) {
+                pos++;
+            }
+            return d;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            } else if (pos >= size) {
+                return -1;
+            }
+            int w = (int) (pos / WINDOW);
+            ByteBuffer bb = windows[w].duplicate();
+            bb.position((int) (pos % WINDOW));
+            int n = Math.min(len, bb.remaining()); // 窓の終わりまで
+            bb.get(b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long s = Math.max(0, Math.min(n, size - pos));
+            pos += s;
+            return s;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, size - pos);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ch.close();
+    }
+}
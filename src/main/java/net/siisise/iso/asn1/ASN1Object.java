@@ -30,9 +30,22 @@ import net.siisise.io.Input;
 public abstract class ASN1Object<T> implements ASN1Tag<T> {
 
     private ASN1Cls cls;// = ASN1Cls.UNIVERSAL;
-    private BigInteger tag;
+    /**
+     * tag番号.
+     * int に収まらない場合は bigTag を使う
+     */
+    private int tagNo;
+    /**
+     * int に収まらないタグ番号のみ
+     */
+    private BigInteger bigTag;
     /** 可変長形式 DERでは未使用 */
     protected boolean inefinite = false;
+    /**
+     * デコード時の符号化, 作った DER. 変更すると null
+     * 変更しない木は複数スレッドから符号化してもよいので volatile
+     */
+    transient volatile ASN1Encoded encoded;
 
     protected ASN1Object() {
 //        asn1class = ASN1Cls.UNIVERSAL;
@@ -44,8 +57,7 @@ public abstract class ASN1Object<T> implements ASN1Tag<T> {
      * @param tag タグ
      */
     protected ASN1Object( byte cls, BigInteger tag ) {
-        this.cls = ASN1Cls.valueOf(cls);
-        this.tag = tag;
+        this(ASN1Cls.valueOf(cls), tag);
     }
 
     /**
@@ -55,7 +67,17 @@ public abstract class ASN1Object<T> implements ASN1Tag<T> {
      */
     protected ASN1Object( ASN1Cls cls, BigInteger tag ) {
         this.cls = cls;
-        this.tag = tag;
+        setTagNumber(tag);
+    }
+
+    /**
+     * 
+     * @param cls 種別 UNIVERSAL, APPLICATION, CONTEXT_SPECIFIC, PRIVATE
+     * @param tag cls によりいろいろ
+     */
+    protected ASN1Object( ASN1Cls cls, int tag ) {
+        this.cls = cls;
+        tagNo = tag;
     }
 
     /**
@@ -63,7 +85,12 @@ public abstract class ASN1Object<T> implements ASN1Tag<T> {
      * @param tag 型の決まっているタグ
      */
     protected ASN1Object( ASN1 tag ) {
-        this(ASN1Cls.UNIVERSAL, tag.tag);
+        this(ASN1Cls.UNIVERSAL, tag.id);
+    }
+
+    private void setTagNumber(BigInteger tag) {
+        tagNo = tag.intValue();
+        bigTag = tag.bitLength() < 32 ? null : tag;
     }
 
     /**
@@ -86,8 +113,10 @@ public abstract class ASN1Object<T> implements ASN1Tag<T> {
     
     @Override
     public void setTag(ASN1Cls c, int tag) {
+        modified();
         cls = c;
-        this.tag = BigInteger.valueOf(tag);
+        tagNo = tag;
+        bigTag = null;
     }
 
     /**
@@ -105,26 +134,68 @@ public abstract class ASN1Object<T> implements ASN1Tag<T> {
      */
     @Override
     public int getId() {
-        return tag.intValue();
+        return tagNo;
+    }
+
+    /**
+     * tag番号.
+     * @return tag番号 int に収まらない場合は -1
+     */
+    @Override
+    public int getTagNumber() {
+        return bigTag == null ? tagNo : -1;
     }
 
     @Override
     public BigInteger getTag() {
-        if ( tag == null ) {
-            return BigInteger.valueOf(getId());
+        if ( bigTag != null ) {
+            return bigTag;
         }
-        return tag;
+        return BigInteger.valueOf(tagNo);
     }
 //    abstract public T getValue();
 //    abstract public void setValue(T val);
 
     /**
-     * ヘッダ書き込みで前後するのであまり使えない
+     * 値の変更.
+     * デコード時の符号化を破棄する. 値を変更するメソッドから呼ぶ.
+     */
+    protected void modified() {
+        encoded = null;
+    }
+
+    @Override
+    public byte[] getEncoded() {
+        ASN1Encoded e = encoded;
+        return e == null ? null : e.get();
+    }
+
+    @Override
+    public byte[] getEncodedDER() {
+        ASN1Encoded e = encoded;
+        return e == null ? null : e.der();
+    }
+
+    /**
+     * DER 符号化.
+     * 変更されるまで記憶する.
+     * 変更と同時でなければ複数スレッドから呼んでもよい.
+     * @return DER
+     */
+    @Override
+    public byte[] encodeAll() {
+        return ASN1Encoded.der(this).clone();
+    }
+
+    /**
+     * DER 出力.
+     * @deprecated #writeTo(OutputStream)
      * @param out
      * @throws java.io.IOException
      */
+    @Deprecated
     public void encodeAll( OutputStream out ) throws IOException {
-        out.write(encodeAll());
+        writeTo(out);
     }
 
     /**
@@ -152,7 +223,7 @@ public abstract class ASN1Object<T> implements ASN1Tag<T> {
         if ( getId() != o.getId() ) {
             return getId() - o.getId();
         }
-        return Arrays.compare(encodeAll(), o.encodeAll());
+        return Arrays.compare(ASN1Encoded.der(this), ASN1Encoded.der(o));
     }
     
     @Override
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.siisise.block.ReadableBlock;
+
+/**
+ * 符号化されたままの BER / DER から経路で要素を取り出す.
+ * 木をデコードせず、対象外の TLV は長さで読み飛ばす.
+ * 経路は最上位の要素の子から / 区切りで指定する.
+ * <ul>
+ * <li>0, 5 など 何番目の子か</li>
+ * <li>* すべての子</li>
+ * <li>[CONTEXT 3], [APPLICATION 1], [PRIVATE 2], [UNIVERSAL 16], [3] (CONTEXT) tag の一致する子</li>
+ * <li>SEQUENCE, INTEGER など UNIVERSAL の型名 tag の一致する子</li>
+ * </ul>
+ * 例: "0/5" tbsCertificate の subject, "0/[CONTEXT 3]/SEQUENCE/*" extensions の各要素
+ * map したファイルは ASN1MappedFile 上の位置でたどる.
+ */
+public class ASN1Path {
+
+    private static final int INDEX = 0;
+    private static final int TAG = 1;
+    private static final int ANY = 2;
+
+    private final String path;
+    private final int[] kind;
+    private final int[] index;
+    private final ASN1Cls[] cls;
+
+    ASN1Path(String path, int[] kind, int[] index, ASN1Cls[] cls) {
+        this.path = path;
+        this.kind = kind;
+        this.index = index;
+        this.cls = cls;
+    }
+
+    /**
+     * 経路の解析.
+     * @param path 経路
+     * @return 経路
+     * @throws IllegalArgumentException 解析できない段がある場合 段の位置と文字列を含む
+     */
+    public static ASN1Path compile(String path) {
+        String[] steps = path.isEmpty() ? new String[0] : path.split("/");
+        // 最上位の要素を 0 として先頭に置く
+        int[] kind = new int[steps.length + 1];
+        int[] index = new int[steps.length + 1];
+        ASN1Cls[] cls = new ASN1Cls[steps.length + 1];
+        for (int i = 0; i < steps.length; i++) {
+            String s = steps[i].trim();
+            int n = i + 1;
+            try {
+                if (s.equals("*")) {
+                    kind[n] = ANY;
+                } else if (s.startsWith("[") && s.endsWith("]")) {
+                    String[] ct = s.substring(1, s.length() - 1).trim().split("\\s+");
+                    if (ct.length > 2) {
+                        throw new IllegalArgumentException(s);
+                    }
+                    kind[n] = TAG;
+                    if (ct.length == 1) {
+                        cls[n] = ASN1Cls.CONTEXT_SPECIFIC;
+                    } else if (ct[0].equals("CONTEXT")) {
+                        cls[n] = ASN1Cls.CONTEXT_SPECIFIC;
+                    } else {
+                        cls[n] = ASN1Cls.valueOf(ct[0]);
+                    }
+                    index[n] = Integer.parseInt(ct[ct.length - 1]);
+                } else if (!s.isEmpty() && Character.isDigit(s.charAt(0))) {
+                    kind[n] = INDEX;
+                    index[n] = Integer.parseInt(s);
+                } else {
+                    kind[n] = TAG;
+                    cls[n] = ASN1Cls.UNIVERSAL;
+                    index[n] = ASN1.valueOf(s).id;
+                }
+            } catch (IllegalArgumentException e) { // 型名, class名, 数値の誤り
+                throw new IllegalArgumentException("path " + path + " step " + i + " \"" + s + "\"", e);
+            }
+        }
+        return new ASN1Path(path, kind, index, cls);
+    }
+
+    /**
+     * 最初に一致した要素の TLV.
+     * @param src BER / DER
+     * @return 複製しない TLV 一致しない場合は null
+     */
+    public ReadableBlock find(byte[] src) {
+        return find(ReadableBlock.wrap(src));
+    }
+
+    /**
+     * 最初に一致した要素の TLV.
+     * @param src BER / DER
+     * @return 複製しない TLV 一致しない場合は null
+     */
+    public ReadableBlock find(ReadableBlock src) {
+        List<ReadableBlock> r = new ArrayList<>(1);
+        long len = src.length();
+        walk(new ASN1X690BER(), src.readBlock(len), len, false, 0, r, true);
+        return r.isEmpty() ? null : r.get(0);
+    }
+
+    /**
+     * 一致したすべての要素の TLV.
+     * @param src BER / DER
+     * @return 複製しない TLV
+     */
+    public List<ReadableBlock> findAll(ReadableBlock src) {
+        List<ReadableBlock> r = new ArrayList<>();
+        long len = src.length();
+        walk(new ASN1X690BER(), src.readBlock(len), len, false, 0, r, false);
+        return r;
+    }
+
+    /**
+     * 最初に一致した要素のみデコードする.
+     * @param src BER / DER
+     * @return ASN.1 Object 一致しない場合は null
+     */
+    public ASN1Tag decode(byte[] src) {
+        ReadableBlock tlv = find(src);
+        return tlv == null ? null : ASN1Util.toASN1(tlv);
+    }
+
+    /**
+     * map したファイルで最初に一致した要素の位置.
+     * map 上でたどるので内容は読み込まない.
+     * @param file map したファイル
+     * @return 要素の位置 一致しない場合は -1
+     */
+    public long find(ASN1MappedFile file) {
+        List<Long> r = new ArrayList<>(1);
+        walk(file, -1, 0, r, true);
+        return r.isEmpty() ? -1 : r.get(0);
+    }
+
+    /**
+     * map したファイルで一致したすべての要素の位置.
+     * @param file map したファイル
+     * @return 要素の位置
+     */
+    public List<Long> findAll(ASN1MappedFile file) {
+        List<Long> r = new ArrayList<>();
+        walk(file, -1, 0, r, false);
+        return r;
+    }
+
+    /**
+     * map したファイルで最初に一致した要素のみデコードする.
+     * @param file map したファイル
+     * @return ASN.1 Object 一致しない場合は null
+     */
+    public ASN1Tag decode(ASN1MappedFile file) {
+        long p = find(file);
+        return p < 0 ? null : file.decode(p);
+    }
+
+    /**
+     * map 上で構造の子を1段たどる.
+     * @param file map したファイル
+     * @param parent 構造の位置 -1 は最上位
+     * @param step 経路の位置
+     * @param out 結果
+     * @param first 最初の1つのみ
+     * @return 終了する場合 true
+     */
+    private boolean walk(ASN1MappedFile file, long parent, int step, List<Long> out, boolean first) {
+        long p = parent >= 0 ? file.child(parent) : file.size() > 0 ? 0 : -1;
+        for (int i = 0; p >= 0; i++) {
+            int id = file.identifier(p);
+            boolean match;
+            switch (kind[step]) {
+                case INDEX:
+                    match = i == index[step];
+                    break;
+                case TAG:
+                    match = ((id >> 6) & 0x03) == cls[step].cls && file.tagNumber(p) == index[step];
+                    break;
+                default:
+                    match = true;
+            }
+            if (match && step == kind.length - 1) {
+                out.add(p);
+                if (first) {
+                    return true;
+                }
+            } else if (match && (id & 0x20) != 0 && walk(file, p, step + 1, out, first)) {
+                return true;
+            }
+            if (kind[step] == INDEX && i >= index[step]) {
+                return false; // map 上は EndOfContent まで読まなくてよい
+            }
+            p = parent >= 0 ? file.next(parent, p) : file.next(p);
+        }
+        return false;
+    }
+
+    /**
+     * 構造の内容を1段たどる.
+     * @param x690 識別子, 長さの読み取り
+     * @param b 内容
+     * @param bLen b の全長 位置の計算用
+     * @param indefinite EndOfContent まで
+     * @param step 経路の位置
+     * @param out 結果
+     * @param first 最初の1つのみ
+     * @return 終了する場合 true
+     */
+    private boolean walk(ASN1X690 x690, ReadableBlock b, long bLen, boolean indefinite, int step, List<ReadableBlock> out, boolean first) {
+        int i = 0;
+        while (indefinite || b.length() > 0) {
+            long start = bLen - b.length();
+            int id = b.read();
+            if (id < 0) {
+                throw new IllegalStateException("EOF");
+            }
+            long tag = ASN1X690.readIdentifier(id, b).tag;
+            long len = x690.readLength(b);
+            if (id == 0 && len == 0) { // EndOfContent
+                if (!indefinite) {
+                    throw new IllegalStateException("EOC");
+                }
+                return false;
+            }
+            boolean match;
+            switch (kind[step]) {
+                case INDEX:
+                    match = i == index[step];
+                    break;
+                case TAG:
+                    match = ((id >> 6) & 0x03) == cls[step].cls && tag == index[step];
+                    break;
+                default:
+                    match = true;
+            }
+            if (match && step == kind.length - 1) {
+                long end = skipBody(x690, b, bLen, len);
+                b.seek(start);
+                out.add(b.readBlock(end - start));
+                if (first) {
+                    return true;
+                }
+            } else if (match && (id & 0x20) != 0) {
+                if (len >= 0) {
+                    if (walk(x690, b.readBlock(len), len, false, step + 1, out, first)) {
+                        return true;
+                    }
+                } else if (walk(x690, b, bLen, true, step + 1, out, first)) {
+                    return true;
+                }
+            } else {
+                skipBody(x690, b, bLen, len);
+            }
+            if (kind[step] == INDEX && i >= index[step] && !indefinite) {
+                return false; // 不定長は EndOfContent まで読む
+            }
+            i++;
+        }
+        return false;
+    }
+
+    /**
+     * 内容を読み飛ばす.
+     * @return 終わりの位置
+     */
+    private static long skipBody(ASN1X690 x690, ReadableBlock b, long bLen, long len) {
+        if (len >= 0) {
+            if (b.skip(len) < len) {
+                throw new IllegalStateException("length " + len);
+            }
+        } else {
+            while (x690.skip(b)) {
+            }
+        }
+        return bLen - b.length();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import net.siisise.block.ReadableBlock;
+import net.siisise.io.Input;
+import net.siisise.iso.asn1.tag.OBJECTIDENTIFIER;
+
+/**
+ * X.690 BER / DER の Pull parser.
+ * ASN1Tag の木を作らずに要素を1つずつ読む (StAX 風).
+ * 構造は終端位置のみ保持するので、メモリは構造の深さと PRIMITIVE 1つぶんの内容による.
+ * ReadableBlock の入力では内容も複製せずに参照する. それ以外の入力元 (ストリーム) は先頭から順に読み、
+ * PRIMITIVE の内容のみ複製する.
+ * 識別子, 長さの読み方は ASN1X690 と共通. DecoderOptions の maxDepth, maxLength を超えるものは読まない.
+ *
+ * <pre>
+ * ASN1Reader r = new ASN1Reader(ReadableBlock.wrap(der));
+ * while (r.hasNext()) {
+ *     switch (r.next()) {
+ *         case START_CONSTRUCTED: ...
+ *         case PRIMITIVE: r.getContents() ...
+ *         case END_CONSTRUCTED: ...
+ *     }
+ * }
+ * </pre>
+ */
+public class ASN1Reader {
+
+    /**
+     * 読み取り結果.
+     */
+    public enum Event {
+        /**
+         * 構造の開始.
+         * cls, tag, length が有効
+         */
+        START_CONSTRUCTED,
+        /**
+         * 単一型.
+         * cls, tag, length, contents が有効
+         */
+        PRIMITIVE,
+        /**
+         * 構造の終了.
+         * 不定長の場合は EndOfContent を読んだところ
+         */
+        END_CONSTRUCTED,
+        /**
+         * 入力の終了
+         */
+        END_DOCUMENT
+    }
+
+    private final Input in;
+    /**
+     * 読んだ長さ
+     */
+    private long position;
+    /**
+     * hasNext で先に読んだ識別子の1バイト目. -1 はなし
+     */
+    private int peek = -1;
+    /**
+     * 識別子, 長さの読み取り
+     */
+    private final ASN1X690 x690;
+    private final DecoderOptions options;
+
+    /**
+     * 構造の終端位置. -1 は不定長
+     */
+    private long[] ends = new long[16];
+    private int depth;
+
+    private Event event;
+    private long offset;
+    private ASN1X690.Identifier id;
+    private ASN1Cls cls;
+    private boolean constructed;
+    private long tag;
+    private long length;
+    private ReadableBlock contents;
+
+    /**
+     * readOctets で使う作業領域
+     */
+    private byte[] scratch;
+
+    /**
+     * BER / DER reader.
+     * @param in 入力元 先頭から読む
+     */
+    public ASN1Reader(Input in) {
+        this(in, new DecoderOptions());
+    }
+
+    /**
+     * 制限つき.
+     * @param in 入力元 ReadableBlock または ストリーム 先頭から読む
+     * @param options 制限
+     */
+    public ASN1Reader(Input in, DecoderOptions options) {
+        this.in = in;
+        this.options = options;
+        x690 = new ASN1X690BER(options);
+    }
+
+    /**
+     * 読み取り位置.
+     * @return 入力先頭からの位置
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * 次のイベントがあるか.
+     * ストリームでは最上位で1バイト先に読む.
+     * @return 最上位の要素を読み終わり、入力が残っていなければ false
+     */
+    public boolean hasNext() {
+        if (depth > 0) {
+            return true;
+        }
+        if (peek < 0) {
+            peek = in.read();
+        }
+        return peek >= 0;
+    }
+
+    /**
+     * 読み飛ばす.
+     * @param n 長さ
+     */
+    private void skip(long n) {
+        if (in.skip(n) < n) {
+            throw new IllegalStateException("length " + n);
+        }
+        position += n;
+    }
+
+    /**
+     * 次の識別子と長さを読む.
+     * PRIMITIVE の場合は内容も参照する.
+     * @return イベント
+     */
+    public Event next() {
+        contents = null;
+        if (depth > 0) {
+            long end = ends[depth - 1];
+            if (end >= 0 && position() >= end) {
+                if (position() > end) {
+                    throw new IllegalStateException("length");
+                }
+                depth--;
+                return event = Event.END_CONSTRUCTED;
+            }
+        }
+        int code = peek >= 0 ? peek : in.read();
+        peek = -1;
+        if (code < 0) {
+            if (depth > 0) {
+                throw new IllegalStateException("EOF");
+            }
+            return event = Event.END_DOCUMENT;
+        }
+        offset = position;
+        id = ASN1X690.readIdentifier(code, in);
+        cls = id.cls();
+        constructed = id.constructed();
+        tag = id.tag;
+        length = x690.readLength(in);
+        position += 2 + id.tagOctets() + x690.lengthOctets();
+        if (id.code == 0 && length == 0) { // EndOfContent
+            if (depth == 0 || ends[depth - 1] >= 0) {
+                throw new IllegalStateException("EOC");
+            }
+            depth--;
+            return event = Event.END_CONSTRUCTED;
+        }
+        if (length >= 0 && depth > 0 && ends[depth - 1] >= 0 && position() + length > ends[depth - 1]) {
+            throw new IllegalStateException("length " + length);
+        }
+        if (constructed) {
+            if (depth + 1 > options.getMaxDepth()) {
+                throw new IllegalStateException("depth " + (depth + 1));
+            }
+            if (depth == ends.length) {
+                long[] n = new long[depth * 2];
+                System.arraycopy(ends, 0, n, 0, depth);
+                ends = n;
+            }
+            ends[depth++] = length < 0 ? -1 : position() + length;
+            return event = Event.START_CONSTRUCTED;
+        }
+        if (length < 0) { // primitive の不定長は不可
+            throw new IllegalStateException("length " + length);
+        }
+        contents = ASN1X690.subBlock(in, length);
+        position += length;
+        return event = Event.PRIMITIVE;
+    }
+
+    /**
+     * 直前のイベント.
+     * @return イベント
+     */
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * 構造の深さ.
+     * @return 0 最上位
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 直前に読んだ要素の先頭位置.
+     * @return 識別子の位置
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public ASN1Cls getASN1Cls() {
+        return cls;
+    }
+
+    public boolean isConstructed() {
+        return constructed;
+    }
+
+    /**
+     * tag番号.
+     * @return tag番号 int に収まらない場合は -1
+     */
+    public int getTagNumber() {
+        return tag >= 0 && tag <= Integer.MAX_VALUE ? (int) tag : -1;
+    }
+
+    public BigInteger getTag() {
+        return id.bigTag();
+    }
+
+    /**
+     * 内容の長さ.
+     * @return -1 不定長
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * PRIMITIVE の内容.
+     * 複製しない参照なので入力は変更しないこと.
+     * @return 内容 PRIMITIVE 以外は null
+     */
+    public ReadableBlock getContents() {
+        return contents;
+    }
+
+    /**
+     * 次の要素を内容ごと読み飛ばす.
+     * 構造の場合は終了まで読み飛ばすのでイベントは返らない.
+     */
+    public void skipValue() {
+        Event e = next();
+        if (e == Event.START_CONSTRUCTED) {
+            skipContents();
+        } else if (e != Event.PRIMITIVE) {
+            throw new IllegalStateException(e.name());
+        }
+    }
+
+    /**
+     * START_CONSTRUCTED の後、構造の残りを END_CONSTRUCTED まで読み飛ばす.
+     */
+    public void skipContents() {
+        int d = depth;
+        long end = ends[d - 1];
+        if (end >= 0) {
+            skip(end - position);
+            depth--;
+            event = Event.END_CONSTRUCTED;
+            return;
+        }
+        while (depth >= d) {
+            if (next() == Event.START_CONSTRUCTED && length >= 0) {
+                skip(length);
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * 次の要素を ASN1Tag にデコードする.
+     * 木にしたい部分だけ使う.
+     * @return ASN.1 Object
+     */
+    public ASN1Tag readTag() {
+        Event e = next();
+        if (e == Event.PRIMITIVE) {
+            return x690.decode(id, length, contents);
+        } else if (e != Event.START_CONSTRUCTED) {
+            throw new IllegalStateException(e.name());
+        }
+        depth--;
+        if (length >= 0) {
+            ASN1Tag o = x690.decode(id, length, ASN1X690.subBlock(in, length));
+            position += length;
+            return o;
+        }
+        ASN1Tag o = x690.decode(id, length, in);
+        position += x690.consumed; // EndOfContent まで
+        return o;
+    }
+
+    /**
+     * 次の単一型を読む.
+     * UNIVERSAL の場合は型を確認する. IMPLICIT のときは確認しない.
+     * @param type 型
+     * @return 内容
+     */
+    private ReadableBlock primitive(ASN1 type) {
+        if (next() != Event.PRIMITIVE) {
+            throw new IllegalStateException(type.name() + " " + event.name());
+        }
+        if (cls == ASN1Cls.UNIVERSAL && tag != type.id) {
+            throw new IllegalStateException(type.name() + " " + tag);
+        }
+        return contents;
+    }
+
+    /**
+     * INTEGER.
+     * @return 値
+     */
+    public BigInteger readInteger() {
+        ReadableBlock c = primitive(ASN1.INTEGER);
+        byte[] d = new byte[(int) c.length()];
+        c.read(d);
+        return new BigInteger(d);
+    }
+
+    /**
+     * INTEGER を BigInteger を使わずに読む.
+     * @return 値
+     * @throws ArithmeticException long に収まらない場合
+     */
+    public long readLong() {
+        ReadableBlock c = primitive(ASN1.INTEGER);
+        long len = c.length();
+        if (len == 0 || len > 8) {
+            throw new ArithmeticException("INTEGER length " + len);
+        }
+        long v = (byte) c.read(); // 符号拡張
+        for (long i = 1; i < len; i++) {
+            v = (v << 8) | c.read();
+        }
+        return v;
+    }
+
+    /**
+     * INTEGER.
+     * @return 値
+     * @throws ArithmeticException int に収まらない場合
+     */
+    public int readInt() {
+        long v = readLong();
+        if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) {
+            throw new ArithmeticException("int " + v);
+        }
+        return (int) v;
+    }
+
+    /**
+     * OBJECT IDENTIFIER.
+     * @return ドット区切りの OID
+     */
+    public String readOID() {
+        ReadableBlock c = primitive(ASN1.OBJECTIDENTIFIER);
+        byte[] d = new byte[(int) c.length()];
+        c.read(d);
+        OBJECTIDENTIFIER oid = new OBJECTIDENTIFIER();
+        oid.decodeBody(d);
+        return oid.getValue();
+    }
+
+    /**
+     * OCTET STRING を dst に読む.
+     * BER / CER の分割された OCTET STRING もつなげて読む.
+     * @param dst 出力先
+     * @return 読んだ長さ
+     * @throws BufferOverflowException dst が足りない場合
+     */
+    public int readOctets(ByteBuffer dst) {
+        Event e = next();
+        if (e == Event.PRIMITIVE) {
+            if (cls == ASN1Cls.UNIVERSAL && tag != ASN1.OCTETSTRING.id) {
+                throw new IllegalStateException("OCTETSTRING " + tag);
+            }
+            return copy(contents, dst);
+        } else if (e != Event.START_CONSTRUCTED) {
+            throw new IllegalStateException("OCTETSTRING " + e.name());
+        }
+        int d = depth;
+        int len = 0;
+        while (next() != Event.END_CONSTRUCTED || depth >= d) {
+            if (event == Event.PRIMITIVE) {
+                len += copy(contents, dst);
+            }
+        }
+        return len;
+    }
+
+    /**
+     * 作業領域を経由して複製する.
+     * @param src 内容
+     * @param dst 出力先
+     * @return 長さ
+     */
+    private int copy(ReadableBlock src, ByteBuffer dst) {
+        int len = (int) src.length();
+        if (dst.remaining() < len) {
+            throw new BufferOverflowException();
+        }
+        if (dst.hasArray()) {
+            src.read(dst.array(), dst.arrayOffset() + dst.position(), len);
+            dst.position(dst.position() + len);
+            return len;
+        }
+        if (scratch == null) {
+            scratch = new byte[4096];
+        }
+        int r = len;
+        while (r > 0) {
+            int s = Math.min(r, scratch.length);
+            src.read(scratch, 0, s);
+            dst.put(scratch, 0, s);
+            r -= s;
+        }
+        return len;
+    }
+}
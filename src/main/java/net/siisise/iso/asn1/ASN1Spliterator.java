@@ -0,0 +1,129 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
+import net.siisise.block.ReadableBlock;
+
+/**
+ * 連結された最上位 TLV を1つずつデコードする Spliterator.
+ * 分割は TLV の境界で行うので parallel() で分散できる.
+ * 境界はヘッダの長さで読み飛ばして探す.
+ */
+public class ASN1Spliterator implements Spliterator<ASN1Tag> {
+
+    /**
+     * これより小さい範囲は分割しない (byte)
+     */
+    static final long MIN_SPLIT = 4096;
+
+    /**
+     * TLV の位置から次の TLV の位置
+     */
+    private final LongUnaryOperator next;
+    /**
+     * TLV の位置からデコード
+     */
+    private final LongFunction<ASN1Tag> decoder;
+    private long pos;
+    private final long end;
+
+    ASN1Spliterator(LongUnaryOperator next, LongFunction<ASN1Tag> decoder, long pos, long end) {
+        this.next = next;
+        this.decoder = decoder;
+        this.pos = pos;
+        this.end = end;
+    }
+
+    /**
+     * byte列.
+     * 複製せずにデコードする.
+     * @param src BER 連結
+     * @return Spliterator
+     */
+    public static ASN1Spliterator of(byte[] src) {
+        return new ASN1Spliterator(p -> {
+            ReadableBlock rb = ReadableBlock.wrap(src);
+            rb.seek(p);
+            new ASN1X690BER().skip(rb);
+            return src.length - rb.length();
+        }, p -> {
+            ReadableBlock rb = ReadableBlock.wrap(src);
+            rb.seek(p);
+            return new ASN1X690BER().decode(rb);
+        }, 0, src.length);
+    }
+
+    /**
+     * map したファイル.
+     * @param file BER 連結
+     * @return Spliterator
+     */
+    public static ASN1Spliterator of(ASN1MappedFile file) {
+        return new ASN1Spliterator(file::end, file::decode, 0, file.size());
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super ASN1Tag> action) {
+        if (pos >= end) {
+            return false;
+        }
+        ASN1Tag tag = decoder.apply(pos);
+        pos = next.applyAsLong(pos);
+        action.accept(tag);
+        return true;
+    }
+
+    /**
+     * 中間付近の TLV 境界で前半を分ける.
+     * @return 前半 分割しない場合 null
+     */
+    @Override
+    public Spliterator<ASN1Tag> trySplit() {
+        if (end - pos < MIN_SPLIT) {
+            return null;
+        }
+        long mid = pos + (end - pos) / 2;
+        long p = pos;
+        while (p < mid) {
+            p = next.applyAsLong(p);
+        }
+        if (p >= end) {
+            return null;
+        }
+        ASN1Spliterator prefix = new ASN1Spliterator(next, decoder, pos, p);
+        pos = p;
+        return prefix;
+    }
+
+    /**
+     * 残りの byte 数.
+     * 要素数はわからないので目安
+     * @return 残りの byte 数
+     */
+    @Override
+    public long estimateSize() {
+        return end - pos;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.LockSupport;
+import net.siisise.block.ReadableBlock;
+
+/**
+ * 入力から最上位 TLV を1つずつ読んでデコードする.
+ * 読み込むのは TLV 1つ分のみ.
+ * frame の切り出しは ASN1IncrementalDecoder で行う.
+ * ノンブロッキングの channel では届くまで hasNext() で待つ.
+ * 待つための Selector は1つ開いて使い回すので、最後まで読まない場合は close すること.
+ */
+public class ASN1StreamIterator implements Iterator<ASN1Tag>, Closeable {
+
+    private final ReadableByteChannel in;
+    private final ByteBuffer buf = ByteBuffer.allocate(8192);
+    private final DecoderOptions options;
+    private final ASN1IncrementalDecoder dec;
+    private byte[] frame;
+    /**
+     * ノンブロッキングの channel を待つ. 最初に待つときに開く
+     */
+    private Selector selector;
+
+    /**
+     * @param in 入力 InputStream は Channels.newChannel で変換する
+     */
+    public ASN1StreamIterator(ReadableByteChannel in) {
+        this(in, new DecoderOptions());
+    }
+
+    /**
+     * 1 frame の上限は maxLength.
+     * @param in 入力 InputStream は Channels.newChannel で変換する
+     * @param options 制限
+     */
+    public ASN1StreamIterator(ReadableByteChannel in, DecoderOptions options) {
+        this.in = in;
+        this.options = options;
+        dec = new ASN1IncrementalDecoder((int) options.getMaxLength());
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (frame == null) {
+                frame = dec.pollFrame();
+                if (frame != null) {
+                    break;
+                }
+                buf.clear();
+                int n = in.read(buf);
+                if (n < 0) {
+                    close();
+                    if (dec.isPartial()) {
+                        throw new IllegalStateException("EOF");
+                    }
+                    return false;
+                } else if (n == 0) { // まだ届いていない
+                    await();
+                    continue;
+                }
+                buf.flip();
+                dec.feed(buf);
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * ノンブロッキングの channel は読めるようになるまで待つ.
+     * Selector を使えないものは少し待つ.
+     * Selector と登録は close まで使い回す.
+     * @throws IOException
+     */
+    private void await() throws IOException {
+        if (in instanceof SelectableChannel && !((SelectableChannel) in).isBlocking()) {
+            if (selector == null) {
+                selector = Selector.open();
+                ((SelectableChannel) in).register(selector, SelectionKey.OP_READ);
+            }
+            selector.select();
+            selector.selectedKeys().clear();
+        } else {
+            LockSupport.parkNanos(1000000L);
+        }
+    }
+
+    @Override
+    public ASN1Tag next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        byte[] f = frame;
+        frame = null;
+        return ASN1Util.toASN1(ReadableBlock.wrap(f), options);
+    }
+
+    /**
+     * 待つための Selector を閉じる.
+     * 入力の channel は閉じない.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (selector != null) {
+            selector.close();
+            selector = null;
+        }
+    }
+}
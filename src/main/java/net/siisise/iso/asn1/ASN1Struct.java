@@ -66,6 +66,26 @@ public interface ASN1Struct<V extends ASN1Tag> extends ASN1Tag<List<V>> {
      */
     public V get(BigInteger tag, int index);
 
+    /**
+     * UNIVERSAL 限定 要素の取得.
+     * 同じタグで n番目.
+     * @param universal 型
+     * @param index 同タグ中の位置
+     * @return 
+     */
+    public default V get(ASN1 universal, int index) {
+        int size = size();
+        for (int i = 0; i < size; i++ ) {
+            V t = get(i);
+            if (t.getTagNumber() == universal.id) {
+                if (index-- == 0) {
+                    return t;
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * 要素の取得.
      * @param name 名
@@ -91,11 +111,35 @@ public interface ASN1Struct<V extends ASN1Tag> extends ASN1Tag<List<V>> {
         return null;
     }
 
+    /**
+     * 元要素の型で返る.
+     * BigInteger を使わない版
+     * @param c Universal以外の型
+     * @param tag タグ番号
+     * @return 謎型
+     */
+    public default ASN1Tag get(ASN1Cls c, int tag) {
+        int size = size();
+        for (int i = 0; i < size; i++ ) {
+            ASN1Tag t = get(i);
+            if (t.getASN1Cls() == c && t.getTagNumber() == tag) {
+                return t;
+            }
+        }
+        return null;
+    }
+
     public default ASN1Tag get(ASN1Cls c, BigInteger tag, ASN1 universal) {
         ASN1Tag org = get(c, tag);
         // 複製
         return convert(org, universal);
     }
+
+    public default ASN1Tag get(ASN1Cls c, int tag, ASN1 universal) {
+        ASN1Tag org = get(c, tag);
+        // 複製
+        return convert(org, universal);
+    }
     
     /*
      * Universal
@@ -115,19 +159,19 @@ public interface ASN1Struct<V extends ASN1Tag> extends ASN1Tag<List<V>> {
      * @return 存在しない場合はnull
      */
     public default ASN1Tag getContextSpecific(int tag) {
-        return get(ASN1Cls.CONTEXT_SPECIFIC, BigInteger.valueOf(tag));
+        return get(ASN1Cls.CONTEXT_SPECIFIC, tag);
     }
 
     public default ASN1Tag getApplication(int tag) {
-        return get(ASN1Cls.APPLICATION, BigInteger.valueOf(tag));
+        return get(ASN1Cls.APPLICATION, tag);
     }
 
     public default ASN1Tag getPrivate(int tag) {
-        return get(ASN1Cls.PRIVATE, BigInteger.valueOf(tag));
+        return get(ASN1Cls.PRIVATE, tag);
     }
 
     public default ASN1Tag get(ASN1Cls c, String name, int tag) {
-        return get(c, BigInteger.valueOf(tag));
+        return get(c, tag);
     }
 
     public default ASN1Tag getContextSpecific(String name, int tag) {
@@ -149,15 +193,15 @@ public interface ASN1Struct<V extends ASN1Tag> extends ASN1Tag<List<V>> {
      * @return
      */
     public default ASN1Tag getContextSpecific(int tag, ASN1 universal) {
-        return get(ASN1Cls.CONTEXT_SPECIFIC, BigInteger.valueOf(tag), universal);
+        return get(ASN1Cls.CONTEXT_SPECIFIC, tag, universal);
     }
 
     public default ASN1Tag getApplication(int tag, ASN1 universal) {
-        return get(ASN1Cls.APPLICATION, BigInteger.valueOf(tag), universal);
+        return get(ASN1Cls.APPLICATION, tag, universal);
     }
 
     public default ASN1Tag getPrivate(int tag, ASN1 universal) {
-        return get(ASN1Cls.PRIVATE, BigInteger.valueOf(tag), universal);
+        return get(ASN1Cls.PRIVATE, tag, universal);
     }
 
     /**
@@ -171,7 +215,7 @@ public interface ASN1Struct<V extends ASN1Tag> extends ASN1Tag<List<V>> {
      * @return 
      */
     public default ASN1Tag get(ASN1Cls c, String name, int tag, ASN1 universal) {
-        return get(c, BigInteger.valueOf(tag), universal);
+        return get(c, tag, universal);
     }
 
     public default ASN1Tag getContextSpecific(String name, int tag, ASN1 universal) {
@@ -200,7 +244,7 @@ public interface ASN1Struct<V extends ASN1Tag> extends ASN1Tag<List<V>> {
         byte[] der = (byte[]) src.rebind(derformat);
         try {
             ASN1Tag copy = ASN1Util.DERtoASN1(der);
-            copy.setTag(ASN1Cls.UNIVERSAL, universal.tag.intValue());
+            copy.setTag(ASN1Cls.UNIVERSAL, universal.id);
             der = (byte[]) copy.rebind(derformat);
             copy = ASN1Util.DERtoASN1(der);
             return copy;
@@ -18,11 +18,23 @@ package net.siisise.iso.asn1;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import net.siisise.bind.format.TypeFormat;
+import net.siisise.block.ReadableBlock;
 import net.siisise.io.Input;
+import net.siisise.iso.asn1.tag.EndOfContent;
 import net.siisise.iso.asn1.tag.NULL;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -41,6 +53,14 @@ import org.w3c.dom.NodeList;
 public class ASN1StructList<T extends ASN1Tag> extends ArrayList<T> implements ASN1Struct<T> {
 
     protected ASN1Cls cls;
+    /**
+     * tag番号.
+     * int に収まらない場合は tag を併用する
+     */
+    protected int tagNo;
+    /**
+     * int に収まらないタグ番号のみ
+     */
     protected BigInteger tag;
     /**
      * 構造型
@@ -51,17 +71,60 @@ public class ASN1StructList<T extends ASN1Tag> extends ArrayList<T> implements A
      */
     protected boolean inefinite = false;
 
+    /**
+     * 遅延デコード 未展開の内容.
+     * 全て展開すると null
+     */
+    private transient ReadableBlock lazyBody;
+    /**
+     * lazyBody の全長. 位置の復元用
+     */
+    private transient long lazyLength;
+    private transient ASN1X690 lazyDecoder;
+    /**
+     * この構造の深さ
+     */
+    private transient int lazyDepth;
+    /**
+     * デコード時の内容の合計. 展開時も同じ上限で数える
+     */
+    private transient AtomicLong lazyTotal;
+    /**
+     * 未展開分を含む要素数. 未計測は -1
+     */
+    private transient int lazySize = -1;
+    /**
+     * map したファイル上の遅延デコード.
+     * 全て展開すると null
+     */
+    private transient ASN1MappedFile lazyFile;
+    /**
+     * map 上のこの構造の位置
+     */
+    private transient long lazyParent;
+    /**
+     * map 上の未展開の次の要素の位置
+     */
+    private transient long lazyNext;
+    /**
+     * デコード時の符号化, 作った DER. 変更すると null
+     * 変更しない木は複数スレッドから符号化してもよいので volatile
+     */
+    transient volatile ASN1Encoded encoded;
+
     protected ASN1StructList(ASN1Cls cls, BigInteger tag) {
         this.cls = cls;
-        this.tag = tag;
+        tagNo = tag.intValue();
+        this.tag = tag.bitLength() < 32 ? null : tag;
     }
     
     protected ASN1StructList(ASN1Cls cls, int tag) {
-        this(cls, BigInteger.valueOf(tag));
+        this.cls = cls;
+        tagNo = tag;
     }
 
     protected ASN1StructList(ASN1 tag) {
-        this(ASN1Cls.UNIVERSAL, tag.tag);
+        this(ASN1Cls.UNIVERSAL, tag.id);
     }
 
     @Override
@@ -81,8 +144,10 @@ public class ASN1StructList<T extends ASN1Tag> extends ArrayList<T> implements A
     
     @Override
     public void setTag(ASN1Cls c, int tag) {
+        modified();
         cls = c;
-        this.tag = BigInteger.valueOf(tag);
+        tagNo = tag;
+        this.tag = null;
     }
 
     /**
@@ -105,17 +170,473 @@ public class ASN1StructList<T extends ASN1Tag> extends ArrayList<T> implements A
     
     @Override
     public void setInefinite(boolean inefinite) {
+        if (inefinite != this.inefinite) {
+            modified();
+        }
         this.inefinite = inefinite;
     }
     
     @Override
     public BigInteger getTag() {
-        return tag;
+        if ( tag != null ) {
+            return tag;
+        }
+        return BigInteger.valueOf(tagNo);
     }
 
     @Override
     public int getId() {
-        return tag.intValue();
+        return tagNo;
+    }
+
+    /**
+     * tag番号.
+     * @return tag番号 int に収まらない場合は -1
+     */
+    @Override
+    public int getTagNumber() {
+        return tag == null ? tagNo : -1;
+    }
+
+    /**
+     * 遅延デコードの準備.
+     * 要素は参照されたときにデコードする.
+     * @param body 構造の内容
+     * @param decoder 要素のデコーダ
+     * @param depth この構造の深さ
+     * @param total デコード時の内容の合計
+     */
+    void lazy(ReadableBlock body, ASN1X690 decoder, int depth, AtomicLong total) {
+        super.clear();
+        lazySize = -1;
+        lazyFile = null;
+        if (body.length() > 0) {
+            lazyBody = body;
+            lazyLength = body.length();
+            lazyDecoder = decoder;
+            lazyDepth = depth;
+            lazyTotal = total;
+        } else {
+            lazyBody = null;
+            lazyDecoder = null;
+            lazyTotal = null;
+        }
+    }
+
+    /**
+     * map したファイル上の遅延デコードの準備.
+     * 要素は参照されたときに map 上でたどってデコードする.
+     * @param file map したファイル
+     * @param parent この構造の位置
+     * @param depth この構造の深さ
+     */
+    void lazy(ASN1MappedFile file, long parent, int depth) {
+        super.clear();
+        lazySize = -1;
+        lazyBody = null;
+        lazyDecoder = null;
+        lazyTotal = null;
+        encoded = null; // 識別子のみデコードした符号化
+        lazyNext = file.child(parent);
+        lazyFile = lazyNext < 0 ? null : file;
+        lazyParent = parent;
+        lazyDepth = depth;
+    }
+
+    /**
+     * 未展開の要素があるか.
+     * @return true 遅延デコード中
+     */
+    public boolean isLazy() {
+        return lazyBody != null || lazyFile != null;
+    }
+
+    /**
+     * map 上の要素数の上限.
+     * @param size 要素数
+     */
+    private void checkMapped(int size) {
+        if (size > lazyFile.getOptions().getMaxChildren()) {
+            throw new IllegalStateException("children " + size);
+        }
+    }
+
+    /**
+     * 1要素デコードする.
+     */
+    private void decodeNext() {
+        if (lazyFile != null) {
+            checkMapped(super.size() + 1);
+            super.add((T) lazyFile.decode(lazyNext, lazyDepth));
+            lazyNext = lazyFile.next(lazyParent, lazyNext);
+            if (lazyNext < 0) {
+                lazyFile = null;
+            }
+            return;
+        }
+        lazyDecoder.checkChildren(super.size() + 1);
+        ASN1Tag o = lazyDecoder.decodeAt(lazyBody, lazyDepth, lazyTotal);
+        if (o instanceof EndOfContent) {
+            throw new IllegalStateException("EOC");
+        }
+        super.add((T) o);
+        if (lazyBody.length() == 0) {
+            lazyBody = null;
+            lazyDecoder = null;
+            lazyTotal = null;
+        }
+    }
+
+    /**
+     * index までデコードする.
+     * @param index 位置
+     */
+    private void expand(int index) {
+        while (isLazy() && super.size() <= index) {
+            decodeNext();
+        }
+    }
+
+    /**
+     * 全要素をデコードする.
+     * 位置に依存する操作、変更の前に呼ぶ.
+     */
+    private void expand() {
+        while (isLazy()) {
+            decodeNext();
+        }
+    }
+
+    /**
+     * 要素.
+     * 遅延デコード中はこの位置までデコードする.
+     * @param index 位置
+     * @return 要素
+     */
+    @Override
+    public T get(int index) {
+        expand(index);
+        return super.get(index);
+    }
+
+    /**
+     * 要素数.
+     * 遅延デコード中は残りをデコードせずにヘッダのみで数える.
+     * @return 要素数
+     */
+    @Override
+    public int size() {
+        if (!isLazy()) {
+            return super.size();
+        }
+        if (lazySize < 0 && lazyFile != null) {
+            int size = super.size();
+            for (long p = lazyNext; p >= 0; p = lazyFile.next(lazyParent, p)) {
+                checkMapped(++size);
+            }
+            lazySize = size;
+        } else if (lazySize < 0) {
+            long pos = lazyLength - lazyBody.length();
+            int size;
+            try {
+                size = super.size() + lazyDecoder.count(lazyBody, lazyDepth);
+            } finally {
+                lazyBody.seek(pos);
+            }
+            lazyDecoder.checkChildren(size);
+            lazySize = size;
+        }
+        return lazySize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return !isLazy() && super.isEmpty();
+    }
+
+    /**
+     * 順番にデコードする Iterator.
+     * @return Iterator
+     */
+    @Override
+    public Iterator<T> iterator() {
+        if (!isLazy()) {
+            Iterator<T> it = super.iterator();
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    return it.next();
+                }
+
+                @Override
+                public void remove() {
+                    it.remove();
+                    modified();
+                }
+            };
+        }
+        return new Iterator<T>() {
+            int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < decodedSize() || isLazy();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+        };
+    }
+
+    private int decodedSize() {
+        return super.size();
+    }
+
+    @Override
+    public ListIterator<T> listIterator() {
+        expand();
+        modified();
+        return super.listIterator();
+    }
+
+    @Override
+    public ListIterator<T> listIterator(int index) {
+        expand();
+        modified();
+        return super.listIterator(index);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        expand();
+        return super.spliterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        expand();
+        super.forEach(action);
+    }
+
+    @Override
+    public Object[] toArray() {
+        expand();
+        return super.toArray();
+    }
+
+    @Override
+    public <E> E[] toArray(E[] a) {
+        expand();
+        return super.toArray(a);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        expand();
+        return super.contains(o);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        expand();
+        return super.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        expand();
+        return super.lastIndexOf(o);
+    }
+
+    @Override
+    public List<T> subList(int fromIndex, int toIndex) {
+        expand();
+        modified();
+        return super.subList(fromIndex, toIndex);
+    }
+
+    @Override
+    public T set(int index, T element) {
+        expand();
+        modified();
+        return super.set(index, element);
+    }
+
+    @Override
+    public void add(int index, T element) {
+        expand();
+        modified();
+        super.add(index, element);
+    }
+
+    @Override
+    public T remove(int index) {
+        expand();
+        modified();
+        return super.remove(index);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        expand();
+        modified();
+        return super.remove(o);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        expand();
+        modified();
+        return super.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends T> c) {
+        expand();
+        modified();
+        return super.addAll(index, c);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        expand();
+        modified();
+        return super.removeAll(c);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        expand();
+        modified();
+        return super.retainAll(c);
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        expand();
+        modified();
+        return super.removeIf(filter);
+    }
+
+    @Override
+    public void replaceAll(UnaryOperator<T> operator) {
+        expand();
+        modified();
+        super.replaceAll(operator);
+    }
+
+    @Override
+    public void sort(Comparator<? super T> c) {
+        expand();
+        modified();
+        super.sort(c);
+    }
+
+    @Override
+    public void clear() {
+        modified();
+        lazyBody = null;
+        lazyDecoder = null;
+        lazyTotal = null;
+        lazyFile = null;
+        super.clear();
+    }
+
+    @Override
+    public int hashCode() {
+        expand();
+        return super.hashCode();
+    }
+
+    @Override
+    public Object clone() {
+        expand();
+        return super.clone();
+    }
+
+    /**
+     * 要素の変更.
+     * デコード時の符号化を破棄する.
+     */
+    protected void modified() {
+        encoded = null;
+    }
+
+    /**
+     * 変更されていない符号化.
+     * デコード済みの子もすべて変更されていない場合のみ. 未展開の子は変更されていない.
+     * @return デコード時の符号化 または null
+     */
+    ASN1Encoded unmodified() {
+        ASN1Encoded e = encoded;
+        if (e == null) {
+            return null;
+        }
+        int size = super.size();
+        for (int i = 0; i < size; i++) {
+            if (ASN1Encoded.of(super.get(i)) == null) {
+                return null;
+            }
+        }
+        return e;
+    }
+
+    @Override
+    public byte[] getEncoded() {
+        ASN1Encoded e = unmodified();
+        return e == null ? null : e.get();
+    }
+
+    @Override
+    public byte[] getEncodedDER() {
+        ASN1Encoded e = unmodified();
+        return e == null ? null : e.der();
+    }
+
+    /**
+     * DER を記憶するときに、デコード済みの子孫を変更なしにする.
+     * @return 元から変更されていなかった場合 true
+     */
+    boolean mark() {
+        boolean unchanged = encoded != null;
+        int size = super.size();
+        for (int i = 0; i < size; i++) {
+            T t = super.get(i);
+            if (t instanceof ASN1Object) {
+                ASN1Object o = (ASN1Object) t;
+                if (o.encoded == null) {
+                    o.encoded = ASN1Encoded.UNCHANGED;
+                    unchanged = false;
+                }
+            } else if (!(t instanceof ASN1StructList) || !((ASN1StructList) t).mark()) {
+                unchanged = false;
+            }
+        }
+        if (!unchanged) {
+            encoded = ASN1Encoded.UNCHANGED;
+        }
+        return unchanged;
+    }
+
+    /**
+     * DER 符号化.
+     * 変更されるまで記憶する.
+     * 変更と同時でなければ複数スレッドから呼んでもよい. 遅延デコードの展開はスレッドセーフではない.
+     * @return DER
+     */
+    @Override
+    public byte[] encodeAll() {
+        return ASN1Encoded.der(this).clone();
     }
 
     /**
@@ -149,6 +670,8 @@ public class ASN1StructList<T extends ASN1Tag> extends ArrayList<T> implements A
         if ( tag == null ) {
             tag = (T)new NULL();
         }
+        expand();
+        modified();
         return super.add(tag);
     }
 
@@ -173,6 +696,27 @@ public class ASN1StructList<T extends ASN1Tag> extends ArrayList<T> implements A
         return null;
     }
     
+    /**
+     * 同タグでn番目 (UNIVERSAL 限定)
+     *
+     * @param universal 型
+     * @param index 位置
+     * @return 対象オブジェクト
+     */
+    @Override
+    public T get(ASN1 universal, int index) {
+        int id = universal.id;
+        for (T t : this) {
+            if (t.getTagNumber() == id) {
+                index--;
+                if (index < 0) {
+                    return t;
+                }
+            }
+        }
+        return null;
+    }
+
     @Override
     public T get(String name, int index) {
         return get(index);
@@ -227,6 +771,22 @@ public class ASN1StructList<T extends ASN1Tag> extends ArrayList<T> implements A
         return count;
     }
 
+    /**
+     * タグ限定サイズ
+     *
+     * @param tag 特定のタグ
+     * @return たぐの含まれる個数
+     */
+    public int tagSize(int tag) {
+        int count = 0;
+        for (ASN1Tag obj : this) {
+            if (obj.getTagNumber() == tag) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * 内容をListとして返す.
      * @return 内容を複製しない新規List
@@ -253,35 +813,20 @@ public class ASN1StructList<T extends ASN1Tag> extends ArrayList<T> implements A
      */
     @Override
     public void decodeBody(Input in, int length) {
-        clear();
-        if (length >= 0) {
-            Input data = ASN1X690.subBlock(in, length);
-            decodeBody(data);
-        } else {
-            inefinite = true;
-            decodeEOFList(in);
-        }
-    }
-
-    void decodeBody(Input in) {
-        while (in.size() > 0) {
-            ASN1Tag o = ASN1Util.toASN1(in);
-            add((T)o);
-        }
+        decodeBody(in, length, new ASN1X690BER());
     }
 
     /**
-     * 長さ不定 decode.
-     * @param in 
+     * バイト列デコード.
+     * 子要素は decoder で読む.
+     * @param in source
+     * @param length -1 は不定長
+     * @param decoder 呼び出し元の decoder
      */
-    void decodeEOFList(Input in) {
-        while (in.size() > 0) {
-            ASN1Tag o = ASN1Decoder.toASN1(in);
-            if (o.getASN1Class() == 0) {
-                break;
-            }
-            add((T)o);
-        }
+    @Override
+    public void decodeBody(Input in, int length, ASN1X690 decoder) {
+        clear();
+        decoder.decodeStruct(this, length, length >= 0 ? decoder.block(in, length) : in);
     }
 
     /**
@@ -301,7 +846,7 @@ public class ASN1StructList<T extends ASN1Tag> extends ArrayList<T> implements A
 //        if ( inefinite != o.inefinite) {
 //            return ( inefinite ? 1 : 0 ) - ( o.inefinite ? 1 : 0 );
 //        }
-        return Arrays.compare(encodeAll(), o.encodeAll());
+        return Arrays.compare(ASN1Encoded.der(this), ASN1Encoded.der(o));
     }
 
     @Override
@@ -320,7 +865,7 @@ public class ASN1StructList<T extends ASN1Tag> extends ArrayList<T> implements A
      */
     @Override
     public <E> E rebind(TypeFormat<E> format) {
-        if ( getASN1Cls() == ASN1Cls.UNIVERSAL && getTag().equals(ASN1.SET.tag) ) {
+        if ( getASN1Cls() == ASN1Cls.UNIVERSAL && getTagNumber() == ASN1.SET.id ) {
             format.setFormat(new HashSet(this));
         }
         return format.listFormat(this);
@@ -329,20 +874,20 @@ public class ASN1StructList<T extends ASN1Tag> extends ArrayList<T> implements A
     @Override
     public Element encodeXML(Document doc) {
         Element xml;
-        if ( cls == ASN1Cls.UNIVERSAL && tag.intValue() < ASN1.values().length ) {
-            ASN1 n2 = ASN1.valueOf(tag.intValue());
+        if ( cls == ASN1Cls.UNIVERSAL && ASN1.valueOf(getTagNumber()) != null ) {
+            ASN1 n2 = ASN1.valueOf(getTagNumber());
             xml = doc.createElement(n2.name());
         } else {
             xml = doc.createElement("struct");
             if ( cls != ASN1Cls.UNIVERSAL ) {
                 xml.setAttribute("class", ""+Integer.toString(cls.cls));
             }
-            xml.setAttribute("tag", tag.toString());
+            xml.setAttribute("tag", getTag().toString());
         }
         if ( inefinite ) {
             xml.setAttribute("inefinite", "true");
         }
-        if (getId() == ASN1.SET.tag.intValue()) {
+        if (getId() == ASN1.SET.id) {
             Collections.sort(this);
         }
         for ( ASN1Tag obj : this ) {
@@ -42,6 +42,14 @@ public class ASN1StructMap<T extends ASN1Tag> extends LinkedHashMap<String,T> im
     Map<String,ASN1Tag> ex = new HashMap<>();
     
     protected ASN1Cls cls;
+    /**
+     * tag番号.
+     * int に収まらない場合は tag を併用する
+     */
+    protected int tagNo;
+    /**
+     * int に収まらないタグ番号のみ
+     */
     protected BigInteger tag;
 
     /**
@@ -56,16 +64,18 @@ public class ASN1StructMap<T extends ASN1Tag> extends LinkedHashMap<String,T> im
 
     public ASN1StructMap(ASN1Cls cls, BigInteger tag) {
         this.cls = cls;
-        this.tag = tag;
+        tagNo = tag.intValue();
+        this.tag = tag.bitLength() < 32 ? null : tag;
     }
     
     public ASN1StructMap(ASN1Cls cls, int tag) {
-        this(cls, BigInteger.valueOf(tag));
+        this.cls = cls;
+        tagNo = tag;
     }
     
     public ASN1StructMap(ASN1 asn) {
         cls = ASN1Cls.UNIVERSAL;
-        tag = asn.tag;
+        tagNo = asn.id;
     }
 
     @Override
@@ -81,7 +91,8 @@ public class ASN1StructMap<T extends ASN1Tag> extends LinkedHashMap<String,T> im
     @Override
     public void setTag(ASN1Cls c, int tag) {
         cls = c;
-        this.tag = BigInteger.valueOf(tag);
+        tagNo = tag;
+        this.tag = null;
     }
 
     @Override
@@ -105,12 +116,24 @@ public class ASN1StructMap<T extends ASN1Tag> extends LinkedHashMap<String,T> im
 
     @Override
     public BigInteger getTag() {
-        return tag;
+        if ( tag != null ) {
+            return tag;
+        }
+        return BigInteger.valueOf(tagNo);
     }
 
     @Override
     public int getId() {
-        return tag.intValue();
+        return tagNo;
+    }
+
+    /**
+     * tag番号.
+     * @return tag番号 int に収まらない場合は -1
+     */
+    @Override
+    public int getTagNumber() {
+        return tag == null ? tagNo : -1;
     }
 
     @Override
@@ -142,7 +165,7 @@ public class ASN1StructMap<T extends ASN1Tag> extends LinkedHashMap<String,T> im
      * @param val 
      */
     public void putExplicit(String key, ASN1Cls cls, int tag, T val) {
-        ASN1Prefixed s = new ASN1Prefixed(cls, BigInteger.valueOf(tag));
+        ASN1Prefixed s = new ASN1Prefixed(cls, tag);
         s.add(val);
         put(key, val);
 //        ex.put(key,s);
@@ -299,7 +322,7 @@ public class ASN1StructMap<T extends ASN1Tag> extends LinkedHashMap<String,T> im
 
     @Override
     public ASN1Tag get(ASN1Cls c, String name, int tag) {
-        ASN1Tag val = get(c, BigInteger.valueOf(tag));
+        ASN1Tag val = get(c, tag);
         if (val == null) {
             return get(name);
         }
@@ -316,7 +339,7 @@ public class ASN1StructMap<T extends ASN1Tag> extends LinkedHashMap<String,T> im
      */
     @Override
     public ASN1Tag get(ASN1Cls c, String name, int tag, ASN1 universal) {
-        ASN1Tag val = get(c, BigInteger.valueOf(tag), universal);
+        ASN1Tag val = get(c, tag, universal);
         if (val == null) {
             return convert(get(name), universal);
         }
@@ -358,7 +381,7 @@ public class ASN1StructMap<T extends ASN1Tag> extends LinkedHashMap<String,T> im
 
     @Override
     public Element encodeXML(Document doc) {
-        Element xml = doc.createElement(ASN1.valueOf(tag.intValue()).name());
+        Element xml = doc.createElement(ASN1.valueOf(tagNo).name());
         for ( Map.Entry<String,T> e : this.entrySet() ) {
             Element child = e.getValue().encodeXML(doc);
             child.setAttribute("name", e.getKey());
@@ -388,7 +411,7 @@ public class ASN1StructMap<T extends ASN1Tag> extends LinkedHashMap<String,T> im
 //        if ( inefinite != o.inefinite) {
 //            return ( inefinite ? 1 : 0 ) - ( o.inefinite ? 1 : 0 );
 //        }
-        return Arrays.compare(encodeAll(), o.encodeAll());
+        return Arrays.compare(encodeAll(), ASN1Encoded.der(o));
     }
 
     @Override
@@ -404,6 +427,16 @@ public class ASN1StructMap<T extends ASN1Tag> extends LinkedHashMap<String,T> im
         return (T)values().stream().filter(v -> v.getTag().equals(tag)).toArray()[index];
     }
 
+    @Override
+    public T get(ASN1 universal, int index) {
+        for (T v : values()) {
+            if (v.getTagNumber() == universal.id && index-- == 0) {
+                return v;
+            }
+        }
+        return null;
+    }
+
     @Override
     public void set(ASN1Tag obj, int... index) {
         throw new UnsupportedOperationException("Not supported yet.");
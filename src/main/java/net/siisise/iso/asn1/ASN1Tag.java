@@ -15,10 +15,12 @@
  */
 package net.siisise.iso.asn1;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import net.siisise.bind.format.TypeFormat;
 import net.siisise.io.Input;
-import net.siisise.iso.asn1.tag.ASN1DERFormat;
+import net.siisise.iso.asn1.tag.ASN1DEREncoder;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -97,6 +99,16 @@ public interface ASN1Tag<T> extends java.lang.Comparable<ASN1Tag> {
      * @return tag
      */
     int getId();
+
+    /**
+     * tag番号.
+     * BigInteger を生成せずに比較するときに使う.
+     * @return tag番号 int に収まらない場合は -1
+     */
+    default int getTagNumber() {
+        BigInteger tag = getTag();
+        return tag.bitLength() < 32 ? tag.intValue() : -1;
+    }
     
     /**
      * 値の取得.
@@ -125,10 +137,36 @@ public interface ASN1Tag<T> extends java.lang.Comparable<ASN1Tag> {
      */
     @Deprecated
     default byte[] encodeAll() {
-        ASN1DERFormat format = new ASN1DERFormat();
-        return rebind(format);
+        return new ASN1DEREncoder().encode(this);
+    }
+
+    /**
+     * DER 符号化してストリームに書く.
+     * 全体の byte[] は作らない.
+     * @param out 出力先
+     * @throws IOException 出力先のエラー
+     */
+    default void writeTo(OutputStream out) throws IOException {
+        new ASN1DEREncoder().encode(this, out);
+    }
+
+    /**
+     * デコード時の符号化.
+     * ASN1X690#setPreserve(boolean) でデコードし、変更されていない場合のみ持つ.
+     * @return 元の TLV 複製しないので変更しないこと. 持たない場合 null
+     */
+    default byte[] getEncoded() {
+        return null;
     }
 
+    /**
+     * DER として再利用できるデコード時の符号化.
+     * 元データが DER として正しく、変更されていない場合のみ.
+     * @return DER の TLV 複製しないので変更しないこと. 持たない場合 null
+     */
+    default byte[] getEncodedDER() {
+        return null;
+    }
 
     /**
      * ヘッダなしDER符号化.
@@ -147,6 +185,17 @@ public interface ASN1Tag<T> extends java.lang.Comparable<ASN1Tag> {
      */
     void decodeBody(Input in, int length);
 
+    /**
+     * decoder を共有するデコード.
+     * 構造の子要素は decoder の設定, 制限のまま読む.
+     * @param in 入力
+     * @param length 最大長 -1 は不定長
+     * @param decoder 呼び出し元の decoder
+     */
+    default void decodeBody(Input in, int length, ASN1X690 decoder) {
+        decodeBody(in, length);
+    }
+
     /**
      * タグとデータを書き
      * @param doc
@@ -17,9 +17,18 @@ package net.siisise.iso.asn1;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -58,6 +67,110 @@ public class ASN1Util {
         return new ASN1X690BER().decode(block);
     }
 
+    /**
+     * BER Decode 制限つき.
+     * @param block 元データ
+     * @param options 深さ, 長さなどの制限
+     * @return ASN.1 Object
+     */
+    public static ASN1Tag toASN1(Input block, DecoderOptions options) {
+        return new ASN1X690BER(options).decode(block);
+    }
+
+    /**
+     * BER 遅延 decoder.
+     * SEQUENCE, SET などの要素は参照されたときにデコードする.
+     * @param src 元データ 参照中は変更しないこと
+     * @return ASN.1 Object
+     */
+    public static ASN1Tag toASN1Lazy(byte[] src) {
+        return toASN1Lazy(ReadableBlock.wrap(src));
+    }
+
+    /**
+     * BER 遅延 Decode.
+     * @param block 元データ 参照中は変更しないこと
+     * @return ASN.1 Object
+     */
+    public static ASN1Tag toASN1Lazy(Input block) {
+        ASN1X690BER ber = new ASN1X690BER();
+        ber.setLazy(true);
+        return ber.decode(block);
+    }
+
+    /**
+     * BER 複製しない Decode.
+     * OCTETSTRING, BITSTRING は元データを参照する.
+     * @param block 元データ 参照中は変更しないこと
+     * @return ASN.1 Object
+     */
+    public static ASN1Tag toASN1View(Input block) {
+        ASN1X690BER ber = new ASN1X690BER();
+        ber.setView(true);
+        return ber.decode(block);
+    }
+
+    /**
+     * 符号化を保持する BER Decode.
+     * 変更していない要素は ASN1Tag#getEncoded() で元の TLV を返す.
+     * 元データが DER として正しい場合は ASN1DERFormat でも再符号化せずに使う.
+     * @param src 元データ 参照中は変更しないこと
+     * @return ASN.1 Object
+     */
+    public static ASN1Tag toASN1Preserved(byte[] src) {
+        ASN1X690BER ber = new ASN1X690BER();
+        ber.setPreserve(true);
+        ber.preserveDER = ASN1DERValidator.isValid(src);
+        return ber.decode(ReadableBlock.wrap(src));
+    }
+
+    /**
+     * BER 並列 Decode.
+     * 内容が threshold byte 以上の構造は子要素を並列にデコードする.
+     * @param block 元データ
+     * @param threshold 並列にする内容の大きさ
+     * @return ASN.1 Object
+     */
+    public static ASN1Tag toASN1Parallel(Input block, long threshold) {
+        ASN1X690BER ber = new ASN1X690BER();
+        ber.setParallel(threshold);
+        return ber.decode(block);
+    }
+
+    /**
+     * 経路で1要素のみ取り出してデコードする.
+     * @param src BER / DER
+     * @param path 経路 "0/5" など ASN1Path 参照
+     * @return ASN.1 Object 一致しない場合は null
+     */
+    public static ASN1Tag extract(byte[] src, String path) {
+        return ASN1Path.compile(path).decode(src);
+    }
+
+    /**
+     * ファイルを map する.
+     * 大きなファイルを heap に読み込まずに扱う.
+     * 構造は遅延デコードし、要素は参照されたときに map からデコードする.
+     * @param path BER / DER ファイル
+     * @return map したファイル 使い終わったら close すること
+     * @throws IOException
+     */
+    public static ASN1MappedFile map(Path path) throws IOException {
+        ASN1MappedFile file = new ASN1MappedFile(path);
+        file.setLazy(true);
+        return file;
+    }
+
+    /**
+     * BER Push 型 Decode.
+     * 入力の終わりまで handler に通知する.
+     * @param block 元データ
+     * @param handler 通知先
+     */
+    public static void parse(Input block, ASN1Handler handler) {
+        new ASN1X690BER().parseAll(block, handler);
+    }
+
     /**
      * DER
      * @param src
@@ -77,6 +190,16 @@ public class ASN1Util {
         return new ASN1X690DER().decode(block);
     }
 
+    /**
+     * DER 制限つき.
+     * @param block 元データ
+     * @param options 深さ, 長さなどの制限
+     * @return ASN.1 Object
+     */
+    public static ASN1Tag DERtoASN1(Input block, DecoderOptions options) {
+        return new ASN1X690DER(options).decode(block);
+    }
+
     /**
      * ASN1 → XMLObj
      * XER ではない
@@ -174,7 +297,7 @@ public class ASN1Util {
                 cls = ASN1Cls.valueOf(Integer.parseInt(clss));
                 root = new ASN1StructList(cls, t.tag);
             } else {
-                root = ASN1Decoder.decodeTag(t.tag);
+                root = t.newInstance();
             }
         }
 
@@ -184,6 +307,20 @@ public class ASN1Util {
         return root;
     }
 
+    /**
+     * BER arena mode.
+     * ストリームから読む内容を slab に詰める.
+     * OCTETSTRING, BITSTRING は slab を参照する.
+     * @param in 入力元
+     * @param arena slab の置き場
+     * @return ASN.1 Object
+     */
+    public static ASN1Tag toASN1(Input in, ASN1Arena arena) {
+        ASN1X690BER ber = new ASN1X690BER();
+        ber.setArena(arena);
+        return ber.decode(in);
+    }
+
     /**
      * BER.
      * @param in
@@ -209,6 +346,62 @@ public class ASN1Util {
         }
         return ao;
     }
+
+    /**
+     * BER 連結を1つずつデコードする.
+     * 読み込むのは TLV 1つ分のみ.
+     * @param in 入力
+     * @return 最上位 TLV の Iterator
+     */
+    public static Iterator<ASN1Tag> iterator(InputStream in) {
+        return new ASN1StreamIterator(Channels.newChannel(in));
+    }
+
+    /**
+     * BER 連結を1つずつデコードする.
+     * @param in 入力
+     * @return 最上位 TLV の Stream
+     */
+    public static Stream<ASN1Tag> stream(InputStream in) {
+        return stream(Channels.newChannel(in));
+    }
+
+    /**
+     * BER 連結を1つずつデコードする.
+     * @param in 入力
+     * @return 最上位 TLV の Stream close で待つための Selector を閉じる
+     */
+    public static Stream<ASN1Tag> stream(ReadableByteChannel in) {
+        ASN1StreamIterator it = new ASN1StreamIterator(in);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(() -> {
+                    try {
+                        it.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * BER 連結を1つずつデコードする.
+     * TLV の境界で分割できるので parallel() 可.
+     * @param src 入力
+     * @return 最上位 TLV の Stream
+     */
+    public static Stream<ASN1Tag> stream(byte[] src) {
+        return StreamSupport.stream(ASN1Spliterator.of(src), false);
+    }
+
+    /**
+     * map したファイルの BER 連結を1つずつデコードする.
+     * TLV の境界で分割できるので parallel() 可.
+     * @param file 入力
+     * @return 最上位 TLV の Stream
+     */
+    public static Stream<ASN1Tag> stream(ASN1MappedFile file) {
+        return StreamSupport.stream(ASN1Spliterator.of(file), false);
+    }
     
     /**
      * 適当に変換.
@@ -15,14 +15,18 @@
  */
 package net.siisise.iso.asn1;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Type;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 import net.siisise.block.OverBlock;
 import net.siisise.block.ReadableBlock;
 import net.siisise.io.Input;
 import net.siisise.iso.asn1.tag.ASN1Prefixed;
+import net.siisise.iso.asn1.tag.BITSTRING;
 import net.siisise.iso.asn1.tag.EndOfContent;
 import net.siisise.iso.asn1.tag.OCTETSTRING;
 
@@ -31,23 +35,209 @@ import net.siisise.iso.asn1.tag.OCTETSTRING;
  */
 public abstract class ASN1X690 {
 
+    /**
+     * 遅延デコード.
+     * 長さの決まっている構造は内容を保持しておき、参照されたときに要素をデコードする.
+     */
+    boolean lazy;
+
+    /**
+     * 遅延デコードの切り替え.
+     * 展開はスレッドセーフではないので注意.
+     * @param lazy true 構造の要素を参照時にデコードする
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * 複製しないデコード.
+     * OCTETSTRING, BITSTRING は元データを参照し、byte[] は必要になったときに生成する.
+     */
+    boolean view;
+
+    /**
+     * OCTETSTRING, BITSTRING の複製しないデコードの切り替え.
+     * 参照している間は元データを変更しないこと.
+     * @param view true 元データを参照する
+     */
+    public void setView(boolean view) {
+        this.view = view;
+    }
+
+    public boolean isView() {
+        return view;
+    }
+
+    /**
+     * 並列デコードする構造の内容の大きさ. -1 は並列にしない
+     */
+    long parallel = -1;
+
+    /**
+     * 並列デコードの切り替え.
+     * 内容が threshold byte 以上の定長の構造は子要素の境界を先に求め、ForkJoinPool.commonPool() でデコードする.
+     * @param threshold 並列にする内容の大きさ -1 は並列にしない
+     */
+    public void setParallel(long threshold) {
+        parallel = threshold;
+    }
+
+    public long getParallel() {
+        return parallel;
+    }
+
+    /**
+     * デコード時の符号化を保持する.
+     */
+    boolean preserve;
+    /**
+     * 入力が DER として正しいことを確認済み.
+     * 保持した符号化を ASN1DERFormat で再利用できる.
+     */
+    boolean preserveDER;
+
+    /**
+     * デコード時の符号化の保持.
+     * 定長の要素は内容を複製せずに参照し、変更されていなければ ASN1Tag#getEncoded() で元の TLV を返す.
+     * 参照している間は元データを変更しないこと. ReadableBlock 以外の入力元, 不定長の構造は保持しない.
+     * @param preserve true 保持する
+     */
+    public void setPreserve(boolean preserve) {
+        this.preserve = preserve;
+        preserveDER = false;
+    }
+
+    public boolean isPreserve() {
+        return preserve;
+    }
+
+    /**
+     * 同じ設定の decoder.
+     * 並列デコードでは子要素ごとに使う.
+     * @return 新しい decoder
+     */
+    abstract ASN1X690 newInstance();
+
+    ASN1X690 fork() {
+        ASN1X690 x = newInstance();
+        x.lazy = lazy;
+        x.view = view;
+        x.parallel = parallel;
+        x.preserve = preserve;
+        x.preserveDER = preserveDER;
+        x.options = options;
+        x.depth = depth;
+        x.total = total;
+        x.nest = 1;
+        return x;
+    }
+
+    /**
+     * 制限.
+     */
+    DecoderOptions options = new DecoderOptions();
+    /**
+     * 構造の深さ
+     */
+    private int depth;
+    /**
+     * 確保した内容の合計.
+     * 最上位の decode ごとに作り直し、並列デコードの fork, 遅延デコードの展開とは共有する
+     */
+    private AtomicLong total = new AtomicLong();
+    /**
+     * decode の入れ子. 0 は最上位
+     */
+    private int nest;
+    /**
+     * 最後に読んだ長さの octet 数. 0 は短い形
+     */
+    private int lengthOctets;
+
+    /**
+     * 最後に読んだ長さの octet 数.
+     * @return 0 は短い形
+     */
+    int lengthOctets() {
+        return lengthOctets;
+    }
+
+    /**
+     * デコード時の制限.
+     * @param options 制限
+     */
+    public void setOptions(DecoderOptions options) {
+        this.options = options;
+    }
+
+    public DecoderOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * 構造の要素数の確認.
+     * @param size 追加後の要素数
+     */
+    void checkChildren(int size) {
+        if (size > options.getMaxChildren()) {
+            throw new IllegalStateException("children " + size);
+        }
+    }
+
+    /**
+     * BER/DER Decode.
+     * @param in 入力元
+     * @return ASN1Object 1つぶん
+     */
+    public abstract ASN1Tag decode(Input in);
+
     /**
      * class 分け
-     * @param identifier cls と constructed 1バイト目 (未使用) 
-     * @param cls 1バイト目 MSB 2bit
-     * @param constructed 1バイト目 0x20 flag
-     * @param tag 残りでタグ
+     * @param id 識別子
      * @param len -1 不定形 または 長さ
-     * @param in 入力可能範囲
+     * @param in 入力可能範囲 不定長の場合は入力元のまま EndOfContent まで読む
      * @return
      */
-    ASN1Tag decode(int identifier, ASN1Cls cls, boolean constructed, BigInteger tag, long len, ReadableBlock in) {
+    ASN1Tag decode(Identifier id, long len, Input in) {
+        if (nest++ == 0) {
+            total = new AtomicLong();
+        }
+        try {
+            return decodeTLV(id, len, in);
+        } finally {
+            nest--;
+        }
+    }
+
+    private ASN1Tag decodeTLV(Identifier id, long len, Input in) {
+        if (preserve && len >= 0 && id.tag >= 0 && in instanceof ReadableBlock) {
+            int octets = lengthOctets;
+            ReadableBlock contents = ((ReadableBlock) in).readBlock(len);
+            ((ReadableBlock) in).seek(0);
+            ASN1Tag object = decodeObject(id, len, in);
+            ASN1Encoded encoded = new ASN1Encoded(id.code, id.tag, octets, contents, preserveDER);
+            if (object instanceof ASN1Object) {
+                ((ASN1Object) object).encoded = encoded;
+            } else if (object instanceof ASN1StructList) {
+                ((ASN1StructList) object).encoded = encoded;
+            }
+            return object;
+        }
+        return decodeObject(id, len, in);
+    }
+
+    private ASN1Tag decodeObject(Identifier id, long len, Input in) {
         ASN1Tag object;
-        switch (cls) {
+        switch (id.cls()) {
             case UNIVERSAL: // Universal 汎用
                 // body込み?
-                object = universal(cls, constructed, tag, len, in);
-                if (object instanceof ASN1Struct) {
+                object = universal(id, len, in);
+                if (object instanceof ASN1Struct || id.constructed()) { // 構造は読み終わっている
                     return object;
                 }
                 break;
@@ -55,24 +245,182 @@ public abstract class ASN1X690 {
 //            case コンテキスト特定: // Context-specific [2]
 //            case PRIVATE: // Private
             default:
-                object = other(cls, constructed, tag);
+                object = other(id);
+                if (lazy && len >= 0 && object instanceof ASN1StructList && in instanceof ReadableBlock) {
+                    return lazy((ASN1StructList) object, (ReadableBlock) in);
+                } else if (id.constructed() && object instanceof ASN1Struct) {
+                    return decodeStruct((ASN1Struct) object, len, in);
+                }
+        }
+        if ((view || arena != null) && len >= 0 && in instanceof ReadableBlock) {
+            if (object instanceof OCTETSTRING) {
+                ((OCTETSTRING) object).view((ReadableBlock) in);
+                return object;
+            } else if (object instanceof BITSTRING) {
+                ((BITSTRING) object).view((ReadableBlock) in);
+                return object;
+            }
+        }
+        if (len >= 0) {
+            long t = total.addAndGet(len);
+            if (t > options.getMaxTotal()) {
+                throw new IllegalStateException("total " + t);
+            }
         }
-        object.decodeBody(in, (int) len);
+        object.decodeBody(in, (int) len, this);
         if ( len >= 0 && in.length() != 0) {
                 throw new IllegalStateException();
         }
         return object;
     }
 
+    /**
+     * 単一型の内容を読む作業領域.
+     * 値に変換する型は要素ごとに byte[] を確保せずにここへ読む
+     */
+    private byte[] scratch;
+    /**
+     * 作業領域の上限. 超えるものは単独で確保する
+     */
+    static final int SCRATCH = 4096;
+
+    /**
+     * 配列の範囲から値に変換するデコード.
+     */
+    public interface Contents {
+
+        /**
+         * @param src 内容を含む配列. 呼び出しの後で再利用されるので保持しないこと
+         * @param offset 内容の位置
+         * @param length 内容の長さ
+         */
+        void decode(byte[] src, int offset, int length);
+    }
+
+    /**
+     * 単一型の内容を配列の範囲として渡す.
+     * INTEGER, OBJECTIDENTIFIER, ASN1String など値に変換する型で使う.
+     * @param in 内容
+     * @param length 長さ
+     * @param decoder 範囲のデコード
+     */
+    public void contents(Input in, int length, Contents decoder) {
+        if (length < 0) {
+            throw new IllegalStateException("length " + length);
+        }
+        if (arena != null && arena.contents(in, length, decoder)) { // slab をそのまま渡す
+            return;
+        }
+        byte[] d;
+        if (length > SCRATCH) {
+            d = new byte[length];
+        } else {
+            if (scratch == null || scratch.length < length) {
+                scratch = new byte[Math.max(64, Integer.highestOneBit(length) << 1)];
+            }
+            d = scratch;
+        }
+        int r = 0;
+        while (r < length) {
+            int s = in.read(d, r, length - r);
+            if (s <= 0) {
+                throw new IllegalStateException("contents[" + r + "] require " + length);
+            }
+            r += s;
+        }
+        decoder.decode(d, 0, length);
+    }
+
+    /**
+     * ストリームから読む内容の置き場. null は要素ごとに確保する
+     */
+    ASN1Arena arena;
+
+    /**
+     * arena mode.
+     * ReadableBlock 以外の入力元から読む単一型の内容を slab に詰め、OCTETSTRING, BITSTRING は slab を参照する.
+     * INTEGER など値に変換する型は slab の範囲から直接読む.
+     * 定長の構造は内容を複製せず、入力元から子要素ごとに読む.
+     * @param arena slab の置き場 null で解除
+     */
+    public void setArena(ASN1Arena arena) {
+        this.arena = arena;
+    }
+
+    public ASN1Arena getArena() {
+        return arena;
+    }
+
+    /**
+     * 内容の切り出し.
+     * arena mode では slab から切り出す.
+     * @param in 入力元
+     * @param len 長さ
+     * @return 内容
+     */
+    ReadableBlock block(Input in, long len) {
+        if (arena == null || in instanceof ReadableBlock) {
+            return subBlock(in, len);
+        }
+        return arena.read(in, (int) len);
+    }
+
+    /**
+     * 最後の decode(Input) で読んだ長さ.
+     * 識別子, 長さを含む. 不定長の構造では decodeUniversalStructBody が内容の長さを入れる
+     */
+    long consumed;
+
+    /**
+     * 構造の内容を複製せずに入力元から読むか.
+     * arena mode でストリームから読む定長の構造.
+     * @param constructed 構造型
+     * @param len 内容の長さ
+     * @param in 入力元
+     * @return true 入力元から子要素を読む
+     */
+    boolean direct(boolean constructed, long len, Input in) {
+        return constructed && len >= 0 && arena != null && !(in instanceof ReadableBlock);
+    }
+
+    /**
+     * 入力元から長さを数えて子要素を読む.
+     * @param struct 構造
+     * @param length 内容の長さ
+     * @param in 入力元
+     */
+    void decodeCounted(ASN1Struct struct, long length, Input in) {
+        long r = 0;
+        int size = 0;
+        while (r < length) {
+            ASN1Tag o = decode(in);
+            if (o instanceof EndOfContent) {
+                throw new IllegalStateException("EOC");
+            }
+            r += consumed;
+            checkChildren(++size);
+            struct.add(o);
+        }
+        if (r != length) {
+            throw new IllegalStateException("length " + length);
+        }
+    }
+
     static ReadableBlock subBlock(Input in, long len) {
         ReadableBlock contents;
         if ( in instanceof ReadableBlock ) {
             contents = ((ReadableBlock)in).readBlock(len);
-        } else {
-            OverBlock b = OverBlock.wrap(new byte[(int)len]);
-            in.read(b);
-            b.seek(0);
-            contents = b;
+        } else { // 読めた長さを確認する
+            byte[] d = new byte[(int)len];
+            int r = 0;
+            while (r < d.length) {
+                int n = in.read(d, r, d.length - r);
+                if (n <= 0) {
+                    throw new IllegalStateException("subBlock[" + r + "] require " + len);
+                }
+                r += n;
+            }
+            contents = OverBlock.wrap(d);
         }
         if (contents.length() < len) {
             throw new java.lang.IllegalStateException("subBlock["+contents.length()+"] require " + len);
@@ -82,21 +430,26 @@ public abstract class ASN1X690 {
 
     /**
      * UNIVERSAL 汎用.
-     * @param identifier
-     * @param constructed 解析用
-     * @param tag
+     * @param id 識別子
      * @param length 解析用 -1 不特定
      * @return
      */
-    ASN1Tag universal(ASN1Cls cl, boolean constructed, BigInteger tag, long length, ReadableBlock in) {
-        ASN1Tag object = decodeUniversalTag(tag);
+    ASN1Tag universal(Identifier id, long length, Input in) {
+        ASN1Cls cl = id.cls();
+        boolean constructed = id.constructed();
+        long tag = id.tag;
+        ASN1Tag object = decodeUniversalTag(id);
         if (object == null || object instanceof EndOfContent ) {
             throw new UnsupportedOperationException("unsupported " + cl + tag + constructed + length + " encoding yet.");
         }
         if (constructed) {
-            if (object instanceof ASN1Struct) {
+            if (lazy && length >= 0 && object instanceof ASN1StructList && in instanceof ReadableBlock) {
+                return lazy((ASN1StructList) object, (ReadableBlock) in);
+            } else if (object instanceof ASN1Struct) {
 //                ((ASN1Struct) object).attrStruct = true;
-                return decodeUniversalStructBody((ASN1Struct) object, length, in);
+                return decodeStruct((ASN1Struct) object, length, in);
+            } else if (object instanceof OCTETSTRING) {
+                return segments((OCTETSTRING) object, length, in);
             } else {
                 throw new UnsupportedOperationException("unsupported " + cl + tag + constructed + " encoding yet.");
             }
@@ -107,52 +460,173 @@ public abstract class ASN1X690 {
         return object;
     }
 
+    /**
+     * BER の分割された OCTET STRING. X.690 8.7.3
+     * 分割の中の分割もつなげる.
+     * @param os 結果
+     * @param length 内容の長さ -1 は不定長
+     * @param in 内容
+     * @return os
+     */
+    private OCTETSTRING segments(OCTETSTRING os, long length, Input in) {
+        ASN1StructList<ASN1Tag> list = new ASN1StructList<>(ASN1.OCTETSTRING);
+        decodeStruct(list, length, in);
+        int size = 0;
+        for (ASN1Tag t : list) {
+            if (!(t instanceof OCTETSTRING) || t.getASN1Cls() != ASN1Cls.UNIVERSAL) {
+                throw new IllegalStateException("OCTETSTRING segment " + t.getASN1Cls() + " " + t.getTagNumber());
+            }
+            size = Math.addExact(size, ((OCTETSTRING) t).length());
+        }
+        byte[] d = new byte[size];
+        int p = 0;
+        for (ASN1Tag t : list) {
+            ByteBuffer s = ((OCTETSTRING) t).asByteBuffer();
+            int n = s.remaining();
+            s.get(d, p, n);
+            p += n;
+        }
+        os.decodeBody(d);
+        return os;
+    }
+
     /**
      * [2] などと定義するタイプ
-     * @param cls
-     * @param constructed
-     * @param tag
+     * @param id 識別子
      * @return 
      */
-    ASN1Tag other(ASN1Cls cls, boolean constructed, BigInteger tag) {
+    ASN1Tag other(Identifier id) {
+        ASN1Cls cls = id.cls();
+        long tag = id.tag;
         ASN1Tag object;
-        if (constructed) { // [2] Type 構造として中に Type を持つ EXPLICIT
-            object = new ASN1StructList(cls, tag);
+        if (id.constructed()) { // [2] Type 構造として中に Type を持つ EXPLICIT
+            if ( tag >= 0 && tag <= Integer.MAX_VALUE ) {
+                object = new ASN1StructList(cls, (int)tag);
+            } else {
+                object = new ASN1StructList(cls, id.bigTag());
+            }
         } else { // [2] IMPLICIT Type で Type を上書きする場合
-            object = new ASN1Prefixed(cls, tag); // 仮
+            if ( tag >= 0 && tag <= Integer.MAX_VALUE ) { // 仮
+                object = new ASN1Prefixed(cls, (int)tag);
+            } else {
+                object = new ASN1Prefixed(cls, id.bigTag());
+            }
         }
         return object;
     }
 
     /**
-     * read tag code
+     * 識別子.
+     * tag 番号が long に収まらない場合は tag を -1 とし、値は big に持つ.
+     */
+    static final class Identifier {
+
+        /**
+         * 1バイト目
+         */
+        final int code;
+        /**
+         * tag 番号 -1 は long に収まらないもの
+         */
+        final long tag;
+        private final BigInteger big;
+
+        Identifier(int code, long tag, BigInteger big) {
+            this.code = code;
+            this.tag = tag;
+            this.big = big;
+        }
+
+        /**
+         * @return 1バイト目 MSB 2bit
+         */
+        ASN1Cls cls() {
+            return ASN1Cls.valueOf((code >> 6) & 0x03);
+        }
+
+        /**
+         * @return 1バイト目 0x20 flag
+         */
+        boolean constructed() {
+            return (code & 0x20) != 0;
+        }
+
+        /**
+         * BigInteger 型のタグ.
+         * @return tag
+         */
+        BigInteger bigTag() {
+            return big == null ? BigInteger.valueOf(tag) : big;
+        }
+
+        /**
+         * tag 番号部分の octet 数.
+         * readIdentifier は冗長な 0x80 を受け付けないので tag 番号から求まる.
+         * @return 1バイト目を含まない octet 数
+         */
+        int tagOctets() {
+            if ((code & 0x1f) != 0x1f) {
+                return 0;
+            }
+            int bits = big != null ? big.bitLength() : 64 - Long.numberOfLeadingZeros(tag | 1);
+            return (bits + 6) / 7;
+        }
+    }
+
+    /**
+     * 1 octet の識別子. 生成しない
+     */
+    private static final Identifier[] LOW = new Identifier[256];
+
+    static {
+        for (int c = 0; c < LOW.length; c++) {
+            LOW[c] = new Identifier(c, c & 0x1f, null);
+        }
+    }
+
+    /**
+     * 識別子を読む.
+     * tag 番号は通常は long で持ち、BigInteger は生成しない. 1 octet の識別子は共有する.
      *
-     * @param code
-     * @param in
-     * @return tag
+     * @param code 1バイト目
+     * @param in 入力
+     * @return 識別子
      */
-    static BigInteger readTag(int code, Input in) {
-        BigInteger tag;
+    static Identifier readIdentifier(int code, Input in) {
         if ((code & 0x1f) != 0x1f) {
             // 8.1.2.3
-            tag = BigInteger.valueOf(code & 0x1f);
-        } else { // 8.1.2.4
-            tag = BigInteger.ZERO;
-            int d;
-            do {
-                d = in.read();
-                if (tag.compareTo(BigInteger.ZERO) == 0 && d == 0x80) {
-                    throw new UnsupportedOperationException("X.690 8.1.2.4.2 c");
-                }
-                tag = tag.shiftLeft(7);
-                tag = tag.or(BigInteger.valueOf(d & 0x7f));
-            } while ((d & 0x80) != 0);
+            return LOW[code & 0xff];
+        }
+        // 8.1.2.4
+        long tag = 0;
+        BigInteger big = null;
+        int d = in.read();
+        if (d == 0x80) {
+            throw new UnsupportedOperationException("X.690 8.1.2.4.2 c");
         }
-        return tag;
+        while (true) {
+            if (d < 0) {
+                throw new IllegalStateException("tag EOF");
+            }
+            if (big == null && tag > (Long.MAX_VALUE >>> 7)) {
+                big = BigInteger.valueOf(tag);
+            }
+            if (big == null) {
+                tag = (tag << 7) | (d & 0x7f);
+            } else {
+                big = big.shiftLeft(7).or(BigInteger.valueOf(d & 0x7f));
+            }
+            if ((d & 0x80) == 0) {
+                break;
+            }
+            d = in.read();
+        }
+        return big == null ? new Identifier(code, tag, null) : new Identifier(code, -1, big);
     }
 
     /**
      * サイズがほしい
+     * options の maxLength を超える長さは不可.
      *
      * @param in
      * @return -1 可変長 0以上 サイズ
@@ -163,58 +637,337 @@ public abstract class ASN1X690 {
         // b) 不定形  8.1.3.6 structure はこっちもあるかも
         long len;
         len = in.read();
-        if (len >= 128) {
+        lengthOctets = 0;
+        if (len < 0) {
+            throw new IllegalStateException("length EOF");
+        } else if (len >= 128) {
             long len2 = len & 0x7f;
             if (len == 128 && len2 == 0) { // DER では不可
                 return -1; // 可変長
             }
+            if (len2 > 8) { // 8.1.3.5 c) 0xff も不可
+                throw new IllegalStateException("length octets " + len2);
+            }
+            lengthOctets = (int) len2;
             len = 0;
             for (int cnt = 0; cnt < len2; cnt++) {
-                len <<= 8;
-                len += in.read();
+                int d = in.read();
+                if (d < 0) {
+                    throw new IllegalStateException("length EOF");
+                }
+                if (len > (options.getMaxLength() >>> 8)) {
+                    throw new IllegalStateException("length over " + options.getMaxLength());
+                }
+                len = (len << 8) | d;
                 //     length++;
             }
         }
+        if (len > options.getMaxLength()) {
+            throw new IllegalStateException("length " + len);
+        }
         return len;
     }
 
+    /**
+     * TLV をデコードせずに1つ読み飛ばす.
+     * 不定長の場合は EndOfContent まで
+     * @param in 入力
+     * @return EndOfContent のとき false
+     */
+    boolean skip(Input in) {
+        return skip(in, depth);
+    }
+
+    /**
+     * 不定長は入れ子をたどるので深さを確認する.
+     * @param in 入力
+     * @param level 外側の構造の深さ
+     * @return EndOfContent のとき false
+     */
+    private boolean skip(Input in, int level) {
+        int identifier = in.read();
+        if (identifier < 0) {
+            throw new IllegalStateException("EOF");
+        }
+        readIdentifier(identifier, in);
+        long len = readLength(in);
+        if (len < 0) {
+            if (level + 1 > options.getMaxDepth()) {
+                throw new IllegalStateException("depth " + (level + 1));
+            }
+            while (skip(in, level + 1)) {
+            }
+        } else if (in.skip(len) < len) {
+            throw new IllegalStateException("length " + len);
+        }
+        return identifier != 0 || len != 0;
+    }
+
+    /**
+     * 要素数を数える.
+     * デコードせずにヘッダのみ読む. 読んだ分は進む.
+     * @param in 構造の内容
+     * @param level 構造の深さ
+     * @return 要素数
+     */
+    int count(Input in, int level) {
+        int size = 0;
+        while (in.length() > 0) {
+            skip(in, level);
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Push 型のデコード.
+     * 入力の終わりまで handler を呼ぶ. ASN1Tag は生成しない.
+     * @param in 入力
+     * @param handler 通知先
+     */
+    public void parseAll(Input in, ASN1Handler handler) {
+        parseAll(in, handler, depth);
+    }
+
+    private void parseAll(Input in, ASN1Handler handler, int level) {
+        while (in.length() > 0) {
+            if (parseTLV(in, handler, level) < 0) {
+                throw new IllegalStateException("EOC");
+            }
+        }
+    }
+
+    /**
+     * Push 型のデコード.
+     * TLV を1つ読んで handler を呼ぶ.
+     * ReadableBlock の入力では primitive の内容は複製せず参照する.
+     * それ以外の入力元では構造は複製せずに読み、primitive の内容のみ複製して渡す.
+     * @param in 入力
+     * @param handler 通知先
+     * @return EndOfContent のとき false
+     */
+    public boolean parse(Input in, ASN1Handler handler) {
+        return parseTLV(in, handler, depth) >= 0;
+    }
+
+    /**
+     * TLV を1つ読む.
+     * @param in 入力
+     * @param handler 通知先 null は読み飛ばす
+     * @param level 外側の構造の深さ
+     * @return 読んだ長さ EndOfContent のときは負
+     */
+    private long parseTLV(Input in, ASN1Handler handler, int level) {
+        int identifier = in.read();
+        if (identifier < 0) {
+            throw new IllegalStateException("EOF");
+        }
+        Identifier id = readIdentifier(identifier, in);
+        ASN1Cls cls = id.cls();
+        boolean constructed = id.constructed();
+        long tag = id.tag;
+        long len = readLength(in);
+        long size = 2 + id.tagOctets() + lengthOctets;
+        if (identifier == 0 && len == 0) {
+            return -size;
+        }
+        if (constructed) {
+            if (level + 1 > options.getMaxDepth()) {
+                throw new IllegalStateException("depth " + (level + 1));
+            }
+            boolean open = handler != null && handler.startConstructed(cls, tag, len);
+            ASN1Handler inner = open ? handler : null;
+            if (len >= 0) {
+                if (in instanceof ReadableBlock) {
+                    if (open) {
+                        parseAll(subBlock(in, len), handler, level + 1);
+                    } else if (in.skip(len) < len) {
+                        throw new IllegalStateException("length " + len);
+                    }
+                } else { // 複製せずに長さを数えて読む
+                    long r = 0;
+                    while (r < len) {
+                        long n = parseTLV(in, inner, level + 1);
+                        if (n < 0) {
+                            throw new IllegalStateException("EOC");
+                        }
+                        r += n;
+                    }
+                    if (r != len) {
+                        throw new IllegalStateException("length " + len);
+                    }
+                }
+                size += len;
+            } else {
+                long n;
+                while ((n = parseTLV(in, inner, level + 1)) >= 0) {
+                    size += n;
+                }
+                size -= n; // EndOfContent
+            }
+            if (open) {
+                handler.endConstructed(cls, tag);
+            }
+        } else {
+            if (len < 0) { // primitive の不定長は不可
+                throw new IllegalStateException("length " + len);
+            }
+            if (handler != null) {
+                handler.primitive(cls, tag, subBlock(in, len));
+            } else if (in.skip(len) < len) {
+                throw new IllegalStateException("length " + len);
+            }
+            size += len;
+        }
+        return size;
+    }
+
+    /**
+     * 遅延デコードの構造.
+     * 深さは作るときに確認し、展開時は同じ深さ, 同じ合計で子要素をデコードする.
+     * @param list 構造
+     * @param in 定長の内容
+     * @return list
+     */
+    private ASN1StructList lazy(ASN1StructList list, ReadableBlock in) {
+        if (depth + 1 > options.getMaxDepth()) {
+            throw new IllegalStateException("depth " + (depth + 1));
+        }
+        list.lazy(in, this, depth + 1, total);
+        return list;
+    }
+
+    /**
+     * 遅延デコードの展開.
+     * @param in 構造の内容
+     * @param level 構造の深さ
+     * @param sum 構造をデコードしたときの合計
+     * @return 要素1つ
+     */
+    ASN1Tag decodeAt(Input in, int level, AtomicLong sum) {
+        int d = depth;
+        int n = nest;
+        AtomicLong t = total;
+        depth = level;
+        nest = 1;
+        total = sum;
+        try {
+            return decode(in);
+        } finally {
+            depth = d;
+            nest = n;
+            total = t;
+        }
+    }
+
     /**
      * 汎用型の生成.
-     * @param tag 汎用タグの範囲
+     * @param id 汎用タグの範囲
      * @return 汎用
      */
-    ASN1Tag decodeUniversalTag(BigInteger tag) {
-        ASN1 asn = ASN1.valueOf(tag.intValue());
-        if ( asn == null || asn.coder == null ) {
+    ASN1Tag decodeUniversalTag(Identifier id) {
+        long tag = id.tag;
+        ASN1 asn = tag <= Integer.MAX_VALUE ? ASN1.valueOf((int)tag) : null;
+        ASN1Tag object = asn == null ? null : asn.newInstance();
+        if ( object == null ) {
 //            throw new UnsupportedOperationException();
-            return new OCTETSTRING(ASN1Cls.UNIVERSAL,tag);
-        }
-        Constructor<? extends ASN1Tag>[] constructs = (Constructor<? extends ASN1Tag>[]) asn.coder.getConstructors();
-        
-        Constructor<? extends ASN1Tag> c0 = null; // パラメータなし コンストラクタ
-        Constructor<? extends ASN1Tag> c1 = null; // 型のみ コンストラクタ
-        
-        for ( Constructor<? extends ASN1Tag> c : constructs ) {
-            Type[] ps = c.getGenericParameterTypes();
-            if ( ps.length == 0 ) {
-                c0 = c;
-            } else if ( ps.length == 1 && ps[0] == ASN1.class ) {
-                c1 = c;
+            if ( tag >= 0 && tag <= Integer.MAX_VALUE ) {
+                return new OCTETSTRING(ASN1Cls.UNIVERSAL, (int)tag);
             }
+            return new OCTETSTRING(ASN1Cls.UNIVERSAL, id.bigTag());
+        }
+        return object;
+    }
+
+    /**
+     * 構造の内容.
+     * 大きい場合は並列にデコードする.
+     * @param struct 構造
+     * @param length 内容の長さ -1 は不定長
+     * @param in 内容
+     * @return struct
+     */
+    ASN1Tag decodeStruct(ASN1Struct struct, long length, Input in) {
+        if (++depth > options.getMaxDepth()) {
+            throw new IllegalStateException("depth " + depth);
         }
         try {
-            if ( c1 != null ) {
-                return c1.newInstance(asn);
+            if (parallel >= 0 && length >= parallel && in instanceof ReadableBlock) {
+                return decodeParallel(struct, (ReadableBlock) in);
             }
-            if ( c0 != null) {
-                return c0.newInstance();
+            return decodeUniversalStructBody(struct, length, in);
+        } finally {
+            depth--;
+        }
+    }
+
+    /**
+     * 並列デコード.
+     * 先に子要素の境界で切り分けてから ForkJoinPool でデコードし、順番どおりに追加する.
+     * @param struct 構造
+     * @param in 定長の内容
+     * @return struct
+     */
+    ASN1Struct decodeParallel(ASN1Struct struct, ReadableBlock in) {
+        long length = in.length();
+        List<ReadableBlock> blocks = new ArrayList<>();
+        while (in.length() > 0) {
+            long start = length - in.length();
+            skip(in);
+            long end = length - in.length();
+            in.seek(start);
+            blocks.add(in.readBlock(end - start));
+            checkChildren(blocks.size());
+        }
+        ASN1Tag[] children = new ASN1Tag[blocks.size()];
+        ForkJoinPool.commonPool().invoke(new ParallelDecode(blocks, children, 0, children.length));
+        for (ASN1Tag child : children) {
+            struct.add(child);
+        }
+        return struct;
+    }
+
+    /**
+     * 子要素の範囲を分けてデコードする.
+     */
+    private class ParallelDecode extends RecursiveAction {
+
+        /**
+         * これ以下の要素数は分けない
+         */
+        static final int GRAIN = 64;
+
+        private final List<ReadableBlock> blocks;
+        private final ASN1Tag[] children;
+        private final int from;
+        private final int to;
+
+        ParallelDecode(List<ReadableBlock> blocks, ASN1Tag[] children, int from, int to) {
+            this.blocks = blocks;
+            this.children = children;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GRAIN) {
+                ASN1X690 x = ASN1X690.this.fork(); // ForkJoinTask#fork ではない
+                for (int i = from; i < to; i++) {
+                    ASN1Tag o = x.decode(blocks.get(i));
+                    if (o instanceof EndOfContent) {
+                        throw new IllegalStateException("EOC");
+                    }
+                    children[i] = o;
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ParallelDecode(blocks, children, from, mid),
+                        new ParallelDecode(blocks, children, mid, to));
             }
-        } catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
-            throw new UnsupportedOperationException(ex);
         }
-        throw new UnsupportedOperationException();
     }
 
-    abstract ASN1Tag decodeUniversalStructBody(ASN1Struct asN1Struct, long length, ReadableBlock in);
+    abstract ASN1Tag decodeUniversalStructBody(ASN1Struct asN1Struct, long length, Input in);
 
 }
@@ -15,7 +15,6 @@
  */
 package net.siisise.iso.asn1;
 
-import java.math.BigInteger;
 import net.siisise.block.ReadableBlock;
 import net.siisise.io.Input;
 import net.siisise.iso.asn1.tag.EndOfContent;
@@ -26,11 +25,27 @@ import net.siisise.iso.asn1.tag.EndOfContent;
  */
 public class ASN1X690BER extends ASN1X690 implements ASN1X690DEC {
 
+    public ASN1X690BER() {
+    }
+
+    /**
+     * 制限つき.
+     * @param options 制限
+     */
+    public ASN1X690BER(DecoderOptions options) {
+        this.options = options;
+    }
+
 // DER で統一した方がいいので略?
 //    ReadableBlock toBER(ASN1Tag obj) {
 //        return ReadableBlock.wrap((byte[])Rebind(new ASN1BERFormat());
 //    }
 
+    @Override
+    ASN1X690 newInstance() {
+        return new ASN1X690BER();
+    }
+
     /**
      * BER/DER Decode.
      * 
@@ -40,25 +55,38 @@ public class ASN1X690BER extends ASN1X690 implements ASN1X690DEC {
     @Override
     public ASN1Tag decode(Input in) {
         // BER/DER
-        int identifier = (byte) in.read();
-        ASN1Cls cls = ASN1Cls.valueOf((identifier >> 6) & 0x03); // 上位2bit
-        boolean constructed = (identifier & 0x20) != 0;
-        BigInteger tagNumber = readTag(identifier, in);
+        int identifier = in.read();
+        if (identifier < 0) {
+            throw new java.lang.IllegalStateException("EOF");
+        }
+        Identifier id = readIdentifier(identifier, in);
+        boolean constructed = id.constructed();
         long len = readLength(in);
+        long header = 2 + id.tagOctets() + lengthOctets();
 //        System.out.println("cls:" + cls + " tag: " + tagNumber + " const " + constructed + " len: " + len);
-        ReadableBlock contents;
-        if (len < 0) {
+        if (identifier == 0 && len == 0) {
+            consumed = header;
+            return new EndOfContent();
+        } else if (len < 0) {
             if ( !constructed) { // primitive の不定サイズ 不可 BER
                 throw new java.lang.IllegalStateException("length " + len);
             }
-            contents = ReadableBlock.wrap(in.readPacket(in.length()));
-        } else {
-            contents = subBlock(in, len);
+            // 残りを読み込まずに入力元から EndOfContent まで要素を読む
+            ASN1Tag o = decode(id, len, in);
+            consumed += header;
+            return o;
         }
+        ASN1Tag o;
+        if (direct(constructed, len, in)) { // 内容は複製せずに子要素ごとに読む
+            o = decode(id, len, in);
+        } else {
+            ReadableBlock contents = block(in, len);
 //        System.out.println(Bin.toHex(contents.toByteArray()));
 //        contents.seek(0);
-
-        return decode(identifier, cls, constructed, tagNumber, len, contents);
+            o = decode(id, len, contents);
+        }
+        consumed = header + len;
+        return o;
     }
 
     /**
@@ -69,11 +97,18 @@ public class ASN1X690BER extends ASN1X690 implements ASN1X690DEC {
      * @return 
      */
     @Override
-    ASN1Struct decodeUniversalStructBody(ASN1Struct struct, long length, ReadableBlock in) {
+    ASN1Struct decodeUniversalStructBody(ASN1Struct struct, long length, Input in) {
 //        struct.decodeBody(in);
-        
-        while ( in.length() > 0) {
+        struct.setInefinite(length < 0);
+        if (length >= 0 && !(in instanceof ReadableBlock)) {
+            decodeCounted(struct, length, in);
+            return struct;
+        }
+        int size = 0;
+        long sum = 0;
+        while ( length < 0 || in.length() > 0) {
             ASN1Tag o = decode(in);
+            sum += consumed;
             if ( o instanceof EndOfContent ) {
                 if ( length >= 0) {
                     throw new IllegalStateException("EOC");
@@ -81,8 +116,10 @@ public class ASN1X690BER extends ASN1X690 implements ASN1X690DEC {
                     break;
                 }
             }
+            checkChildren(++size);
             struct.add(o);
         }
+        consumed = sum;
         return struct;
     }
 
@@ -15,7 +15,6 @@
  */
 package net.siisise.iso.asn1;
 
-import java.math.BigInteger;
 import net.siisise.block.ReadableBlock;
 import net.siisise.io.Input;
 import net.siisise.iso.asn1.tag.ASN1DERFormat;
@@ -26,11 +25,27 @@ import net.siisise.iso.asn1.tag.ASN1DERFormat;
  */
 public class ASN1X690DER extends ASN1X690 implements ASN1X690DEC {
 
+    public ASN1X690DER() {
+    }
+
+    /**
+     * 制限つき.
+     * @param options 制限
+     */
+    public ASN1X690DER(DecoderOptions options) {
+        this.options = options;
+    }
+
     public ReadableBlock toDER(ASN1Tag obj) {
         return ReadableBlock.wrap((byte[])obj.rebind(new ASN1DERFormat()));
 //        return ReadableBlock.wrap(Rebind.valueOf(obj, new ASN1DERFormat()));
     }
 
+    @Override
+    ASN1X690 newInstance() {
+        return new ASN1X690DER();
+    }
+
     /**
      * DER Decode.
      * BER/CERもだいたいおなじ.
@@ -40,18 +55,27 @@ public class ASN1X690DER extends ASN1X690 implements ASN1X690DEC {
      */
     @Override
     public ASN1Tag decode(Input in) {
-        int identifier = (byte) in.read();
-        ASN1Cls cls = ASN1Cls.valueOf((identifier >> 6) & 0x03); // 上位2bit
-        boolean constructed = (identifier & 0x20) != 0;
-        BigInteger tagNumber = readTag(identifier, in);
+        int identifier = in.read();
+        if (identifier < 0) {
+            throw new java.lang.IllegalStateException("EOF");
+        }
+        Identifier id = readIdentifier(identifier, in);
+        boolean constructed = id.constructed();
         long len = readLength(in);
         if (len < 0) { // primitive の不定サイズ 不可 DER structured の不定形も不可
             throw new java.lang.IllegalStateException("length");
 //            contents = in;
         }
-        ReadableBlock contents = subBlock(in, len);
-
-        return decode(identifier, cls, constructed, tagNumber, len, contents);
+        long header = 2 + id.tagOctets() + lengthOctets();
+        ASN1Tag o;
+        if (direct(constructed, len, in)) { // 内容は複製せずに子要素ごとに読む
+            o = decode(id, len, in);
+        } else {
+            ReadableBlock contents = block(in, len);
+            o = decode(id, len, contents);
+        }
+        consumed = header + len;
+        return o;
     }
 
     /**
@@ -62,11 +86,17 @@ public class ASN1X690DER extends ASN1X690 implements ASN1X690DEC {
      * @return 
      */
     @Override
-    ASN1Struct decodeUniversalStructBody(ASN1Struct struct, long length, ReadableBlock in) {
+    ASN1Struct decodeUniversalStructBody(ASN1Struct struct, long length, Input in) {
 //        struct.decodeBody(in);
+        if (!(in instanceof ReadableBlock)) {
+            decodeCounted(struct, length, in);
+            return struct;
+        }
 
+        int size = 0;
         while ( in.length() > 0) {
             ASN1Tag o = decode(in);
+            checkChildren(++size);
             struct.add(o);
         }
         return struct;
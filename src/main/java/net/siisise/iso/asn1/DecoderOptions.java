@@ -0,0 +1,91 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+/**
+ * デコード時の制限.
+ * 壊れた入力や悪意のある入力で巨大な配列の確保やスタックの溢れが起きないようにする.
+ * 超えた場合は IllegalStateException.
+ */
+public class DecoderOptions {
+
+    /**
+     * 構造の深さ
+     */
+    private int maxDepth = 64;
+    /**
+     * 1要素の内容の長さ (byte)
+     */
+    private long maxLength = Integer.MAX_VALUE - 8;
+    /**
+     * 1構造の要素数
+     */
+    private int maxChildren = Integer.MAX_VALUE;
+    /**
+     * 1回のデコードで確保する単一型の内容の合計 (byte)
+     */
+    private long maxTotal = Long.MAX_VALUE;
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * 構造の深さ.
+     * @param maxDepth 最上位の構造を 1 とした深さ
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public long getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * 1要素の内容の長さ.
+     * int を超える長さは扱えない.
+     * @param maxLength byte
+     */
+    public void setMaxLength(long maxLength) {
+        this.maxLength = Math.min(maxLength, Integer.MAX_VALUE - 8);
+    }
+
+    public int getMaxChildren() {
+        return maxChildren;
+    }
+
+    /**
+     * 1構造の要素数.
+     * @param maxChildren 要素数
+     */
+    public void setMaxChildren(int maxChildren) {
+        this.maxChildren = maxChildren;
+    }
+
+    public long getMaxTotal() {
+        return maxTotal;
+    }
+
+    /**
+     * デコード1回で確保する内容の合計.
+     * OCTETSTRING などの複製しない参照は数えない.
+     * @param maxTotal byte
+     */
+    public void setMaxTotal(long maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+}
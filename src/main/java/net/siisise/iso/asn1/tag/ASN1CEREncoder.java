@@ -0,0 +1,344 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1.tag;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.siisise.block.ReadableBlock;
+import net.siisise.iso.asn1.ASN1;
+import net.siisise.iso.asn1.ASN1Cls;
+import net.siisise.iso.asn1.ASN1StructList;
+import net.siisise.iso.asn1.ASN1StructMap;
+import net.siisise.iso.asn1.ASN1Tag;
+import net.siisise.iso.asn1.ASN1Util;
+
+/**
+ * ITU-T X.690 CER encoder.
+ * 長さを先に求めずに書き出す. 構造は不定長で EndOfContent で閉じ、1000 octet を超える
+ * OCTET STRING, BIT STRING, 文字列は 1000 octet ずつの構造に分割する. X.690 9.1, 9.2
+ * InputStream を内容にすると 1000 octet の buffer のみで書けるので、大きさのわからない内容も包める.
+ * SET, SET OF は要素を並べ替えるため要素ごとにメモリ上で符号化する.
+ * 1 byte ずつ書くこともあるので出力先は BufferedOutputStream などがよい. スレッドセーフではない.
+ */
+public class ASN1CEREncoder {
+
+    /**
+     * 分割の単位. X.690 9.2
+     */
+    static final int SEGMENT = 1000;
+
+    private final OutputStream out;
+    private final ASN1DEREncoder der = new ASN1DEREncoder();
+    private final byte[] segment = new byte[SEGMENT];
+    private final byte[] one = new byte[1];
+    /**
+     * startConstructed の深さ
+     */
+    private int depth;
+
+    /**
+     * @param out 出力先
+     */
+    public ASN1CEREncoder(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * 内容の読み込み元.
+     */
+    private interface Source {
+
+        int read(byte[] b, int offset, int length) throws IOException;
+    }
+
+    /**
+     * 要素を1つ書く.
+     * CHOICE は選択した要素を書く. ASN.1 の型でないものは ASN1Tag に変換してから書くので、長い文字列なども分割する.
+     * @param obj ASN.1 Object, List, Map, Set など
+     * @throws IOException 出力先のエラー
+     */
+    public void encode(Object obj) throws IOException {
+        if (obj instanceof ASN1Tag) {
+            ASN1Tag tag = (ASN1Tag) obj;
+            if (obj instanceof ASN1StructList) {
+                if (tag.getASN1Cls() == ASN1Cls.UNIVERSAL && tag.getTagNumber() == ASN1.SET.id) {
+                    set(ASN1DEREncoder.identifier(tag, true), (Collection) obj);
+                } else {
+                    struct(ASN1DEREncoder.identifier(tag, true), (Collection) obj);
+                }
+            } else if (obj instanceof ASN1Prefixed) { // EXPLICIT
+                struct(ASN1DEREncoder.identifier(tag, true), Collections.singletonList(((ASN1Prefixed) obj).base));
+            } else if (obj instanceof CHOICE) {
+                Collection values = ((Map) obj).values();
+                if (values.size() != 1) {
+                    throw new IllegalStateException("CHOICE " + values.size());
+                }
+                encode(values.iterator().next());
+            } else if (obj instanceof ASN1StructMap) {
+                struct(ASN1DEREncoder.identifier(tag, true), ((Map) obj).values());
+            } else if (obj instanceof OCTETSTRING && ((OCTETSTRING) obj).length() > SEGMENT) {
+                ReadableBlock block = ((OCTETSTRING) obj).asBlock();
+                octets(ASN1DEREncoder.identifier(tag, true), block::read);
+            } else {
+                leaf(der.encode(obj), obj instanceof ASN1String, obj instanceof BITSTRING);
+            }
+        } else if (obj instanceof List) {
+            struct(new byte[] {(byte) (0x20 | ASN1.SEQUENCE.id)}, (List) obj);
+        } else if (obj instanceof Set) {
+            set(new byte[] {(byte) (0x20 | ASN1.SET.id)}, (Set) obj);
+        } else if (obj instanceof Map) {
+            struct(new byte[] {(byte) (0x20 | ASN1.SEQUENCE.id)}, ((Map) obj).values());
+        } else {
+            ASN1Tag tag;
+            try {
+                tag = ASN1Util.toASN1(obj);
+            } catch (UnsupportedOperationException e) { // ASN1Convert にない型は DER のまま
+                tag = null;
+            }
+            if (tag == null) {
+                out.write(der.encode(obj));
+            } else {
+                encode(tag);
+            }
+        }
+    }
+
+    /**
+     * 不定長の構造を開始する.
+     * 要素を書いたあと endConstructed() で閉じる.
+     * @param cls class
+     * @param tag tag 番号
+     * @throws IOException 出力先のエラー
+     */
+    public void startConstructed(ASN1Cls cls, int tag) throws IOException {
+        out.write(identifier(cls, true, tag));
+        out.write(0x80);
+        depth++;
+    }
+
+    /**
+     * 不定長の SEQUENCE を開始する.
+     * @throws IOException 出力先のエラー
+     */
+    public void startSequence() throws IOException {
+        startConstructed(ASN1Cls.UNIVERSAL, ASN1.SEQUENCE.id);
+    }
+
+    /**
+     * 構造を閉じる.
+     * @throws IOException 出力先のエラー
+     */
+    public void endConstructed() throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("EOC");
+        }
+        depth--;
+        out.write(0);
+        out.write(0);
+    }
+
+    /**
+     * OCTET STRING を InputStream の終わりまで書く.
+     * @param in 内容
+     * @throws IOException 入力元, 出力先のエラー
+     */
+    public void writeOctets(InputStream in) throws IOException {
+        writeOctets(ASN1Cls.UNIVERSAL, ASN1.OCTETSTRING.id, in);
+    }
+
+    /**
+     * OCTET STRING 相当の型を InputStream の終わりまで書く.
+     * 1000 octet 以下は単一型、超える場合は分割した構造にする.
+     * @param cls class
+     * @param tag tag 番号
+     * @param in 内容
+     * @throws IOException 入力元, 出力先のエラー
+     */
+    public void writeOctets(ASN1Cls cls, int tag, InputStream in) throws IOException {
+        octets(identifier(cls, true, tag), in::read);
+    }
+
+    private void struct(byte[] id, Collection children) throws IOException {
+        out.write(id);
+        out.write(0x80);
+        for (Object o : children) {
+            encode(o);
+        }
+        out.write(0);
+        out.write(0);
+    }
+
+    /**
+     * SET, SET OF.
+     * 要素の符号化の順. X.690 9.3
+     */
+    private void set(byte[] id, Collection children) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(children.size());
+        for (Object o : children) {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            new ASN1CEREncoder(bout).encode(o);
+            encoded.add(bout.toByteArray());
+        }
+        encoded.sort(ASN1DEREncoder::compare);
+        out.write(id);
+        out.write(0x80);
+        for (byte[] e : encoded) {
+            out.write(e);
+        }
+        out.write(0);
+        out.write(0);
+    }
+
+    /**
+     * 単一型.
+     * @param d DER
+     * @param string 文字列型
+     * @param bits BIT STRING
+     */
+    private void leaf(byte[] d, boolean string, boolean bits) throws IOException {
+        int h = headerLength(d);
+        if ((!string && !bits) || d.length - h <= SEGMENT || (d[0] & 0x20) != 0) {
+            out.write(d);
+            return;
+        }
+        out.write(d[0] | 0x20);
+        out.write(d, 1, identifierLength(d) - 1);
+        out.write(0x80);
+        if (bits) { // 未使用 bit は最後の断片のみ
+            int unused = d[h];
+            int p = h + 1;
+            while (p < d.length) {
+                int n = Math.min(SEGMENT - 1, d.length - p);
+                out.write(ASN1.BITSTRING.id);
+                length(n + 1);
+                out.write(p + n == d.length ? unused : 0);
+                out.write(d, p, n);
+                p += n;
+            }
+        } else {
+            for (int p = h; p < d.length; p += SEGMENT) {
+                int n = Math.min(SEGMENT, d.length - p);
+                out.write(ASN1.OCTETSTRING.id);
+                length(n);
+                out.write(d, p, n);
+            }
+        }
+        out.write(0);
+        out.write(0);
+    }
+
+    /**
+     * OCTET STRING 相当の内容を分割して書く.
+     * 先に 1001 octet 目まで読み、1000 octet 以下の場合は単一型にする.
+     * @param id 構造型の識別子 変更しない
+     * @param src 内容
+     */
+    private void octets(byte[] id, Source src) throws IOException {
+        int n = readFully(src, 0);
+        int next = n == SEGMENT ? readByte(src) : -1;
+        if (next < 0) {
+            out.write(id[0] & ~0x20);
+            out.write(id, 1, id.length - 1);
+            length(n);
+            out.write(segment, 0, n);
+            return;
+        }
+        out.write(id);
+        out.write(0x80);
+        while (true) {
+            out.write(ASN1.OCTETSTRING.id);
+            length(n);
+            out.write(segment, 0, n);
+            if (next < 0) {
+                break;
+            }
+            segment[0] = (byte) next;
+            n = 1 + readFully(src, 1);
+            next = n == SEGMENT ? readByte(src) : -1;
+        }
+        out.write(0);
+        out.write(0);
+    }
+
+    private int readFully(Source src, int offset) throws IOException {
+        int p = offset;
+        while (p < SEGMENT) {
+            int r = src.read(segment, p, SEGMENT - p);
+            if (r <= 0) {
+                break;
+            }
+            p += r;
+        }
+        return p - offset;
+    }
+
+    private int readByte(Source src) throws IOException {
+        return src.read(one, 0, 1) <= 0 ? -1 : one[0] & 0xff;
+    }
+
+    /**
+     * 長さ. 定長.
+     */
+    private void length(int len) throws IOException {
+        if (len < 0x80) {
+            out.write(len);
+            return;
+        }
+        int n = ASN1DEREncoder.lengthOctets(len) - 1;
+        out.write(0x80 | n);
+        for (int i = n - 1; i >= 0; i--) {
+            out.write(len >>> (8 * i));
+        }
+    }
+
+    private static byte[] identifier(ASN1Cls cls, boolean constructed, int tag) {
+        int id = (cls.ordinal() << 6) | (constructed ? 0x20 : 0);
+        if (tag < 0x1f) {
+            return new byte[] {(byte) (id | tag)};
+        }
+        int n = (38 - Integer.numberOfLeadingZeros(tag)) / 7;
+        byte[] d = new byte[n + 1];
+        d[0] = (byte) (id | 0x1f);
+        for (int i = 0; i < n; i++) {
+            int v = (tag >>> (7 * (n - 1 - i))) & 0x7f;
+            d[i + 1] = (byte) (i < n - 1 ? 0x80 | v : v);
+        }
+        return d;
+    }
+
+    private static int identifierLength(byte[] d) {
+        int p = 1;
+        if ((d[0] & 0x1f) == 0x1f) {
+            while ((d[p++] & 0x80) != 0) {
+            }
+        }
+        return p;
+    }
+
+    private static int headerLength(byte[] d) {
+        int p = identifierLength(d);
+        int l = d[p] & 0xff;
+        return p + 1 + (l >= 0x80 ? l & 0x7f : 0);
+    }
+}
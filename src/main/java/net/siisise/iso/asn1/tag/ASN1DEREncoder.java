@@ -0,0 +1,580 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1.tag;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.siisise.bind.Rebind;
+import net.siisise.block.ReadableBlock;
+import net.siisise.iso.asn1.ASN1;
+import net.siisise.iso.asn1.ASN1Cls;
+import net.siisise.iso.asn1.ASN1Encoded;
+import net.siisise.iso.asn1.ASN1StructList;
+import net.siisise.iso.asn1.ASN1StructMap;
+import net.siisise.iso.asn1.ASN1Tag;
+
+/**
+ * 長さを先に求める DER encoder.
+ * 1回目で構造の内容の長さを下から求めて記録し、2回目で ちょうどの大きさの配列に TLV を1回ずつ書く.
+ * ASN1DERFormat のように階層ごとに byte[] を作って親に複製しないので、深い木でも複製は1回.
+ * ASN.1 の単一型は class ごとに直接内容を作り、ASN1DERFormat (Rebind) を通すのは ASN.1 以外の型と知らない型のみ.
+ * OCTETSTRING の内容は複製せずに出力先へ直接書く.
+ * null, Boolean, 小さい整数は符号化済みの共有の配列をそのまま使う.
+ * OutputStream, WritableByteChannel へは小さい buffer を使い回して書くので、出力全体の byte[] は作らない.
+ * スレッドセーフではない.
+ */
+public class ASN1DEREncoder {
+
+    /**
+     * 1 octet の識別子
+     */
+    private static final byte[][] ID = new byte[256][];
+
+    static {
+        for (int i = 0; i < ID.length; i++) {
+            ID[i] = new byte[] {(byte) i};
+        }
+    }
+
+    private final ASN1DERFormat format;
+    /**
+     * ストリーム出力用. 最初に使うときに確保する
+     */
+    private ByteBuffer buffer;
+    /**
+     * buffer が足りなかった要素と計算結果.
+     * 要素が変更された場合は使わない
+     */
+    private Object pending;
+    private Plan pendingPlan;
+    private int pendingLength;
+
+    public ASN1DEREncoder() {
+        this(new ASN1DERFormat());
+    }
+
+    /**
+     * @param format 単一型, ASN.1 以外の型の符号化
+     */
+    public ASN1DEREncoder(ASN1DERFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * 符号化の長さ.
+     * @param obj ASN.1 Object など
+     * @return ヘッダを含む DER の長さ
+     */
+    public int encodedLength(ASN1Tag obj) {
+        return new Plan(format).measure(obj);
+    }
+
+    /**
+     * DER 符号化.
+     * @param obj ASN.1 Object, List, Map, Set など
+     * @return DER
+     */
+    public byte[] encode(Object obj) {
+        Plan plan = new Plan(format);
+        return plan.toByteArray(plan.measure(obj));
+    }
+
+    /**
+     * DER 符号化して buffer に書く.
+     * heap, direct どちらでもよく、中間の byte[] は作らない.
+     * 残りが足りない場合は何も書かずに必要な長さを負の値で返す.
+     * 続けて同じ要素で呼ぶと長さの計算は省略する. 間に要素が変更された場合は計算し直す.
+     * 変更を検出できない要素 (Map, Collection など) は毎回計算する.
+     * @param obj ASN.1 Object, List, Map, Set など
+     * @param dst 出力先 position から書く
+     * @return 書いた長さ, 足りない場合は -(必要な長さ)
+     */
+    public int encode(Object obj, ByteBuffer dst) {
+        Plan plan;
+        int length;
+        if (pending == obj && pendingPlan != null && ASN1Encoded.isUnmodified(obj)) {
+            plan = pendingPlan;
+            length = pendingLength;
+        } else {
+            plan = new Plan(format);
+            length = plan.measure(obj);
+        }
+        if (dst.remaining() < length) {
+            if (ASN1Encoded.watch(obj)) {
+                pending = obj;
+                pendingPlan = plan;
+                pendingLength = length;
+            } else { // 変更を検出できないものは残さない
+                pending = null;
+                pendingPlan = null;
+            }
+            return -length;
+        }
+        pending = null;
+        pendingPlan = null;
+        plan.write(dst);
+        return length;
+    }
+
+    /**
+     * DER 符号化してストリームに書く.
+     * @param obj ASN.1 Object, List, Map, Set など
+     * @param out 出力先
+     * @throws IOException 出力先のエラー
+     */
+    public void encode(Object obj, OutputStream out) throws IOException {
+        encode(obj, src -> {
+            out.write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            src.position(src.limit());
+        });
+    }
+
+    /**
+     * DER 符号化して channel に書く.
+     * @param obj ASN.1 Object, List, Map, Set など
+     * @param out 出力先
+     * @throws IOException 出力先のエラー
+     */
+    public void encode(Object obj, WritableByteChannel out) throws IOException {
+        encode(obj, src -> {
+            while (src.hasRemaining()) {
+                out.write(src);
+            }
+        });
+    }
+
+    private void encode(Object obj, Sink sink) throws IOException {
+        Plan plan = new Plan(format);
+        plan.measure(obj);
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate(8192);
+        }
+        buffer.clear();
+        plan.write(buffer, sink);
+        buffer.flip();
+        sink.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * 出力先.
+     */
+    interface Sink {
+
+        /**
+         * 残りをすべて書く.
+         * @param src heap の buffer
+         * @throws IOException 出力先のエラー
+         */
+        void write(ByteBuffer src) throws IOException;
+    }
+
+    /**
+     * 長さを求めた結果.
+     * 先順に並べた TLV の部品. 構造はヘッダのみ、単一型は TLV.
+     */
+    static class Plan {
+
+        private final ASN1DERFormat format;
+        /**
+         * 構造は識別子 byte[], 単一型は TLV byte[], OCTETSTRING は内容
+         */
+        private Object[] items = new Object[64];
+        /**
+         * 識別子のあとに書く長さ. TLV, 内容は -1
+         */
+        private int[] lengths = new int[64];
+        private int size;
+
+        Plan(ASN1DERFormat format) {
+            this.format = format;
+        }
+
+        private int add(Object d, int length) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            items[size] = d;
+            lengths[size] = length;
+            return size++;
+        }
+
+        /**
+         * 1回目.
+         * @param obj 要素
+         * @return TLV の長さ
+         */
+        int measure(Object obj) {
+            if (obj instanceof ASN1Tag) {
+                ASN1Tag tag = (ASN1Tag) obj;
+                byte[] der = tag.getEncodedDER();
+                if (der != null) {
+                    return leaf(der);
+                }
+                if (obj instanceof ASN1StructList) {
+                    if (tag.getASN1Cls() == ASN1Cls.UNIVERSAL && tag.getTagNumber() == ASN1.SET.id) {
+                        return set(identifier(tag, true), (Collection) obj);
+                    }
+                    return struct(identifier(tag, tag.isConstructed()), (Collection) obj);
+                } else if (obj instanceof ASN1Prefixed) { // EXPLICIT
+                    return struct(identifier(tag, true), Collections.singletonList(((ASN1Prefixed) obj).base));
+                } else if (obj instanceof ASN1StructMap && !(obj instanceof CHOICE)) {
+                    return struct(identifier(tag, true), ((Map) obj).values());
+                }
+                return primitive(tag);
+            } else if (obj instanceof List) {
+                return struct(ID[0x20 | ASN1.SEQUENCE.id], (List) obj);
+            } else if (obj instanceof Set) {
+                return set(ID[0x20 | ASN1.SET.id], (Set) obj);
+            } else if (obj instanceof Map) {
+                return struct(ID[0x20 | ASN1.SEQUENCE.id], ((Map) obj).values());
+            }
+            byte[] der = ASN1DERFormat.shared(obj);
+            if (der == null) {
+                der = Rebind.valueOf(obj, format);
+            }
+            return leaf(der);
+        }
+
+        /**
+         * 単一型.
+         * IMPLICIT では tag 番号が変わるので型は class で分ける. 内容は複製せずに item にする.
+         * 知らない型のみ rebind で ASN1DERFormat を通す.
+         */
+        private int primitive(ASN1Tag tag) {
+            boolean universal = tag.getASN1Cls() == ASN1Cls.UNIVERSAL;
+            if (tag instanceof OCTETSTRING && !tag.isConstructed()) {
+                byte[] id = identifier(tag, false);
+                int length = ((OCTETSTRING) tag).length();
+                add(id, length);
+                add(tag, -1);
+                return Math.addExact(id.length + lengthOctets(length), length);
+            } else if (tag instanceof INTEGER) {
+                BigInteger v = ((INTEGER) tag).getValue();
+                if (universal && v.bitLength() < 64) {
+                    return leaf(ASN1DERFormat.integer(v.longValue()));
+                }
+                return leaf(identifier(tag, false), v.toByteArray());
+            } else if (tag instanceof ASN1String) {
+                return leaf(identifier(tag, false), ((ASN1String) tag).encodeBody());
+            } else if (tag instanceof OBJECTIDENTIFIER) {
+                return leaf(identifier(tag, false), ((OBJECTIDENTIFIER) tag).contents());
+            } else if (tag instanceof BOOLEAN) {
+                boolean b = ((BOOLEAN) tag).getValue();
+                if (universal) {
+                    return leaf(b ? ASN1DERFormat.TRUE_DER : ASN1DERFormat.FALSE_DER);
+                }
+                return leaf(identifier(tag, false), new byte[] {(byte) (b ? 0xff : 0)});
+            } else if (tag instanceof NULL) {
+                return universal ? leaf(ASN1DERFormat.NULL_DER) : leaf(identifier(tag, false), new byte[0]);
+            } else if (tag instanceof BITSTRING) {
+                return leaf(identifier(tag, false), bits((BITSTRING) tag));
+            } else if (tag instanceof REAL) {
+                Number v = ((REAL) tag).getValue();
+                if (v instanceof Double || v instanceof Float) {
+                    return leaf(identifier(tag, false), format.encodeDoubleBody(v.doubleValue()));
+                } else if (v instanceof BigDecimal) {
+                    return leaf(identifier(tag, false), format.encodeDecimalBody((BigDecimal) v));
+                }
+            }
+            return leaf((byte[]) tag.rebind(format));
+        }
+
+        /**
+         * TLV.
+         */
+        private int leaf(byte[] der) {
+            add(der, -1);
+            return der.length;
+        }
+
+        /**
+         * 識別子 + 長さ と 内容.
+         */
+        private int leaf(byte[] id, byte[] contents) {
+            add(id, contents.length);
+            add(contents, -1);
+            return Math.addExact(id.length + lengthOctets(contents.length), contents.length);
+        }
+
+        /**
+         * BITSTRING の内容. 未使用ビット数 + 本体 未使用ビットは 0. X.690 8.6, 11.2
+         */
+        private static byte[] bits(BITSTRING bs) {
+            long bitlen = bs.bitLength();
+            int n = (int) ((bitlen + 7) / 8);
+            int unused = (int) (-bitlen & 7);
+            byte[] d = new byte[n + 1];
+            d[0] = (byte) unused;
+            if (n > 0) {
+                System.arraycopy(bs.bytes(), 0, d, 1, n);
+                d[n] &= 0x100 - (1 << unused);
+            }
+            return d;
+        }
+
+        private int struct(byte[] id, Collection children) {
+            int index = add(id, 0);
+            int length = 0;
+            for (Object o : children) {
+                length = Math.addExact(length, measure(o));
+            }
+            lengths[index] = length;
+            return Math.addExact(id.length + lengthOctets(length), length);
+        }
+
+        /**
+         * SET / SET OF.
+         * 要素ごとに1回だけ符号化し、符号化したものを並べ替えてそのまま書く.
+         * ASN1Tag の要素の符号化は記憶する.
+         */
+        private int set(byte[] id, Collection children) {
+            List<byte[]> ders = new ArrayList<>(children.size());
+            for (Object o : children) {
+                if (o instanceof ASN1Tag) {
+                    ders.add(ASN1Encoded.der((ASN1Tag) o));
+                } else {
+                    Plan p = new Plan(format);
+                    ders.add(p.toByteArray(p.measure(o)));
+                }
+            }
+            ders.sort(ASN1DEREncoder::compare);
+            int index = add(id, 0);
+            int length = 0;
+            for (byte[] der : ders) {
+                add(der, -1);
+                length = Math.addExact(length, der.length);
+            }
+            lengths[index] = length;
+            return Math.addExact(id.length + lengthOctets(length), length);
+        }
+
+        /**
+         * 2回目 byte[].
+         * @param length measure の長さ
+         * @return DER
+         */
+        byte[] toByteArray(int length) {
+            byte[] der = new byte[length];
+            write(ByteBuffer.wrap(der));
+            return der;
+        }
+
+        /**
+         * 2回目 buffer.
+         * @param out measure の長さ以上の残り
+         */
+        void write(ByteBuffer out) {
+            try {
+                write(out, null);
+            } catch (IOException e) { // sink なしでは発生しない
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * 2回目.
+         * @param out 出力先 sink が null の場合は measure の長さ以上の残り
+         * @param sink out が一杯になったときの書き出し先 または null
+         * @throws IOException sink のエラー
+         */
+        void write(ByteBuffer out, Sink sink) throws IOException {
+            for (int i = 0; i < size; i++) {
+                Object item = items[i];
+                if (lengths[i] >= 0) { // 識別子 + 長さ 最大 5 + 6 byte
+                    byte[] id = (byte[]) item;
+                    if (sink != null && out.remaining() < id.length + 5) {
+                        flush(out, sink);
+                    }
+                    put(out, sink, id, 0, id.length);
+                    writeLength(out, lengths[i]);
+                } else if (item instanceof byte[]) {
+                    byte[] d = (byte[]) item;
+                    put(out, sink, d, 0, d.length);
+                } else {
+                    OCTETSTRING os = (OCTETSTRING) item;
+                    ByteBuffer mapped = os.mapped();
+                    if (mapped != null) {
+                        put(out, sink, mapped);
+                    } else if (os.isView()) {
+                        put(out, sink, os.asBlock());
+                    } else {
+                        byte[] d = os.value();
+                        if (d != null) { // 内容なしは長さ 0
+                            put(out, sink, d, 0, d.length);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void put(ByteBuffer out, Sink sink, byte[] d, int offset, int length) throws IOException {
+            if (sink == null) {
+                out.put(d, offset, length);
+                return;
+            }
+            if (length > out.capacity()) { // 大きいものは直接
+                flush(out, sink);
+                sink.write(ByteBuffer.wrap(d, offset, length));
+                return;
+            }
+            while (length > 0) {
+                if (!out.hasRemaining()) {
+                    flush(out, sink);
+                }
+                int n = Math.min(out.remaining(), length);
+                out.put(d, offset, n);
+                offset += n;
+                length -= n;
+            }
+        }
+
+        private void put(ByteBuffer out, Sink sink, ReadableBlock block) throws IOException {
+            byte[] tmp = out.hasArray() ? null : new byte[(int) Math.min(block.length(), 8192)];
+            while (block.length() > 0) {
+                if (!out.hasRemaining()) {
+                    if (sink == null) {
+                        throw new BufferOverflowException();
+                    }
+                    flush(out, sink);
+                }
+                int n = (int) Math.min(out.remaining(), block.length());
+                if (tmp == null) {
+                    n = block.read(out.array(), out.arrayOffset() + out.position(), n);
+                } else {
+                    n = block.read(tmp, 0, Math.min(n, tmp.length));
+                }
+                if (n <= 0) {
+                    throw new IllegalStateException("OCTETSTRING EOF");
+                }
+                if (tmp == null) {
+                    out.position(out.position() + n);
+                } else {
+                    out.put(tmp, 0, n);
+                }
+            }
+        }
+
+        /**
+         * map などの ByteBuffer は heap とは限らないので out を経由して書く.
+         */
+        private void put(ByteBuffer out, Sink sink, ByteBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                if (!out.hasRemaining()) {
+                    if (sink == null) {
+                        throw new BufferOverflowException();
+                    }
+                    flush(out, sink);
+                }
+                int n = Math.min(out.remaining(), src.remaining());
+                ByteBuffer part = src.duplicate();
+                part.limit(part.position() + n);
+                out.put(part);
+                src.position(src.position() + n);
+            }
+        }
+
+        private static void flush(ByteBuffer out, Sink sink) throws IOException {
+            out.flip();
+            sink.write(out);
+            out.clear();
+        }
+    }
+
+    /**
+     * 識別子.
+     * @param tag class, tag
+     * @param constructed 構造型
+     * @return identifier octets
+     */
+    static byte[] identifier(ASN1Tag tag, boolean constructed) {
+        int id = (tag.getASN1Class() << 6) | (constructed ? 0x20 : 0);
+        int no = tag.getTagNumber();
+        if (no >= 0 && no < 0x1f) {
+            return ID[id | no];
+        }
+        BigInteger t = no >= 0 ? BigInteger.valueOf(no) : tag.getTag();
+        int n = (t.bitLength() + 6) / 7;
+        byte[] d = new byte[n + 1];
+        d[0] = (byte) (id | 0x1f);
+        for (int i = 0; i < n; i++) {
+            int v = t.shiftRight(7 * (n - 1 - i)).intValue() & 0x7f;
+            d[i + 1] = (byte) (i < n - 1 ? 0x80 | v : v);
+        }
+        return d;
+    }
+
+    /**
+     * 長さの octet 数.
+     * @param len 内容の長さ
+     * @return 短い形は 1
+     */
+    static int lengthOctets(int len) {
+        if (len < 0x80) {
+            return 1;
+        }
+        return 2 + (31 - Integer.numberOfLeadingZeros(len)) / 8;
+    }
+
+    /**
+     * 長さ. X.690 8.1.3, 10.1
+     * @param out 出力先
+     * @param len 内容の長さ
+     */
+    static void writeLength(ByteBuffer out, int len) {
+        if (len < 0x80) {
+            out.put((byte) len);
+            return;
+        }
+        int n = lengthOctets(len) - 1;
+        out.put((byte) (0x80 | n));
+        for (int i = n - 1; i >= 0; i--) {
+            out.put((byte) (len >>> (8 * i)));
+        }
+    }
+
+    /**
+     * SET OF の順序.
+     * 短い方の後ろを 0 で埋めて octet を符号なしで比べる. X.690 11.6
+     * @param a DER
+     * @param b DER
+     * @return 比較
+     */
+    static int compare(byte[] a, byte[] b) {
+        int len = Math.max(a.length, b.length);
+        for (int i = 0; i < len; i++) {
+            int x = i < a.length ? a[i] & 0xff : 0;
+            int y = i < b.length ? b[i] & 0xff : 0;
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return 0;
+    }
+}
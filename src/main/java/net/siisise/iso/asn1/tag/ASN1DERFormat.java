@@ -22,11 +22,9 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import net.siisise.bind.Rebind;
 import net.siisise.bind.format.TypeBind;
 import net.siisise.bind.format.TypeFallFormat;
 import net.siisise.io.BitPacket;
@@ -46,33 +44,91 @@ import net.siisise.lang.Bin;
  */
 public class ASN1DERFormat extends TypeFallFormat<byte[]> implements TypeBind<byte[]> {
 
+    /**
+     * 符号化済みの NULL. 共有するので変更しないこと
+     */
+    static final byte[] NULL_DER = {(byte) ASN1.NULL.id, 0};
+    static final byte[] TRUE_DER = {(byte) ASN1.BOOLEAN.id, 1, (byte) 0xff};
+    static final byte[] FALSE_DER = {(byte) ASN1.BOOLEAN.id, 1, 0};
+    /**
+     * 符号化済みの INTEGER -128 から 127. 共有するので変更しないこと
+     */
+    private static final byte[][] SMALL_INTEGER = new byte[256][];
+
+    static {
+        for (int i = 0; i < SMALL_INTEGER.length; i++) {
+            SMALL_INTEGER[i] = new byte[] {(byte) ASN1.INTEGER.id, 1, (byte) (i - 128)};
+        }
+    }
+
     /**
      * DERは固定で決まる
      * X.690 202102 8.1.3.
      * 8.1.3.6. 不定形式はなし
      * a) 定型
+     * 識別子と内容を1つの配列にまとめる.
      *
-     * @param len
-     * @return
+     * @param id identifier octets
+     * @param contents 内容
+     * @return DER
      */
-    Packet encodeLength(int len) {
-        PacketA pac = new PacketA();
-//        if ( inefinite ) {
-//            pac.write(INFLEN);
-//            return pac;
-//        }
-        pac.dwrite(Bin.toByte(len));
-        int i;
-        do {
-            i = pac.read();
-        } while (i == 0 && pac.length() > 1);
-        if (i > 0) {
-            pac.backWrite(i);
+    static byte[] tlv(byte[] id, byte[] contents) {
+        int len = contents.length;
+        int h = id.length + ASN1DEREncoder.lengthOctets(len);
+        byte[] d = new byte[h + len];
+        System.arraycopy(id, 0, d, 0, id.length);
+        int p = id.length;
+        if (len < 0x80) {
+            d[p] = (byte) len;
+        } else {
+            int n = h - p - 1;
+            d[p++] = (byte) (0x80 | n);
+            for (int i = n - 1; i >= 0; i--) {
+                d[p++] = (byte) (len >>> (8 * i));
+            }
         }
-        if (len >= 0x80) {
-            pac.backWrite(0x80 + pac.size());
+        System.arraycopy(contents, 0, d, h, len);
+        return d;
+    }
+
+    /**
+     * INTEGER の DER.
+     * BigInteger を経由せずに最小の2の補数で書く. X.690 8.3
+     * -128 から 127 は共有の配列を返すので変更しないこと.
+     *
+     * @param v 値
+     * @return DER INTEGER
+     */
+    static byte[] integer(long v) {
+        if (v >= -128 && v < 128) {
+            return SMALL_INTEGER[(int) v + 128];
+        }
+        int n = (72 - Long.numberOfLeadingZeros(v < 0 ? ~v : v)) / 8; // 符号 bit を含む octet 数
+        byte[] d = new byte[2 + n];
+        d[0] = (byte) ASN1.INTEGER.id;
+        d[1] = (byte) n;
+        for (int i = 0; i < n; i++) {
+            d[2 + i] = (byte) (v >>> (8 * (n - 1 - i)));
+        }
+        return d;
+    }
+
+    /**
+     * 共有の配列で符号化できる単一型.
+     * null, Boolean, 64bit 以下の整数.
+     *
+     * @param obj 値
+     * @return DER 変更しないこと. 該当しない場合 null
+     */
+    static byte[] shared(Object obj) {
+        if (obj == null) {
+            return NULL_DER;
+        } else if (obj instanceof Boolean) {
+            return ((Boolean) obj) ? TRUE_DER : FALSE_DER;
+        } else if (obj instanceof Integer || obj instanceof Long || obj instanceof Short || obj instanceof Byte) {
+            return integer(((Number) obj).longValue());
         }
-        return pac;
+        return null;
     }
 
     /*
@@ -97,14 +153,8 @@ public class ASN1DERFormat extends TypeFallFormat<byte[]> implements TypeBind<by
      * @return DER ヘッダつき
      */
     public byte[] encodeDER(ASN1Tag obj, byte[] contents) {
-        Packet pac = encodeLength(contents.length);
-        pac.backWrite(encodeIdentifier(obj));
-        pac.write(contents);
         // DER infinite なし
-//        if ( obj.infinite) {
-//            pac.write(EO);
-//        }
-        return pac.toByteArray();
+        return tlv(ASN1DEREncoder.identifier(obj, obj.isConstructed()), contents);
     }
 
     /**
@@ -116,10 +166,7 @@ public class ASN1DERFormat extends TypeFallFormat<byte[]> implements TypeBind<by
      * @return DER符号化
      */
     byte[] encodeUniversal(ASN1 asn1, byte[] contents) {
-        Packet pac = encodeLength(contents.length);
-        pac.backWrite(encodeTagNo(asn1.tag));
-        pac.write(contents);
-        return pac.toByteArray();
+        return tlv(encodeTagNo(asn1.tag), contents);
     }
 /*
     byte[] encodeUniversal(ASN1Cls cls, boolean struct, BigInteger tag, byte[] contents) {
@@ -129,19 +176,6 @@ public class ASN1DERFormat extends TypeFallFormat<byte[]> implements TypeBind<by
         return pac.toByteArray();
     }
 */
-    /**
-     * encode identifier octets.
-     * class | struct | tag から identifier octets を生成する.
-     * @param obj class struct tagの情報
-     * @return identifier octets
-     */
-    private byte[] encodeIdentifier(ASN1Tag obj) {
-        BigInteger tagId = obj.getTag();
-        byte[] identifier = encodeTagNo(tagId);
-        identifier[0] |= obj.getASN1Class() << 6 | (obj.isConstructed() ? 0x20 : 0);
-        return identifier;
-    }
-
     /**
      * identifier の tag 部分を符号化.
      * class = 0 汎用
@@ -161,7 +195,7 @@ public class ASN1DERFormat extends TypeFallFormat<byte[]> implements TypeBind<by
             tagNo = new byte[len + 1];
             BigInteger t = tagId;
             for (int i = 0; i < len; i++) {
-                tagNo[i + 1] = (byte) (((i == len - 1) ? 0x80 : 0) | t.shiftRight((len - i - 1) * 7).intValue() & 0x7f);
+                tagNo[i + 1] = (byte) (((i < len - 1) ? 0x80 : 0) | t.shiftRight((len - i - 1) * 7).intValue() & 0x7f);
             }
             tagNo[0] = (byte) 0x1f;
         }
@@ -175,7 +209,7 @@ public class ASN1DERFormat extends TypeFallFormat<byte[]> implements TypeBind<by
      */
     @Override
     public byte[] nullFormat() {
-        return encodeUniversal(ASN1.NULL, new byte[0]);
+        return NULL_DER.clone();
     }
 
     /**
@@ -187,7 +221,7 @@ public class ASN1DERFormat extends TypeFallFormat<byte[]> implements TypeBind<by
      */
     @Override
     public byte[] booleanFormat(boolean bool) {
-        return encodeUniversal(ASN1.BOOLEAN, new byte[]{(byte) (bool ? 0xff : 0)});
+        return (bool ? TRUE_DER : FALSE_DER).clone();
     }
 
     /**
@@ -201,10 +235,14 @@ public class ASN1DERFormat extends TypeFallFormat<byte[]> implements TypeBind<by
     @Override
     public byte[] numberFormat(Number num) {
         if (num instanceof Integer || num instanceof Long || num instanceof Short || num instanceof Byte) {
-            num = BigInteger.valueOf(num.longValue());
+            return longFormat(num.longValue());
         }
         if (num instanceof BigInteger) {
-            return encodeUniversal(ASN1.INTEGER, ((BigInteger) num).toByteArray());
+            BigInteger v = (BigInteger) num;
+            if (v.bitLength() < 64) {
+                return longFormat(v.longValue());
+            }
+            return encodeUniversal(ASN1.INTEGER, v.toByteArray());
         } else if (num instanceof BigDecimal ) {
             return encodeUniversal(ASN1.REAL, encodeDecimalBody((BigDecimal)num));
         } else if (num instanceof Double || num instanceof Float) {
@@ -213,6 +251,18 @@ public class ASN1DERFormat extends TypeFallFormat<byte[]> implements TypeBind<by
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * X.690 8.3. INTEGER
+     * BigInteger にせずに符号化する.
+     *
+     * @param v 値
+     * @return DER INTEGER
+     */
+    public byte[] longFormat(long v) {
+        byte[] d = integer(v);
+        return v >= -128 && v < 128 ? d.clone() : d;
+    }
+
     static final BigInteger TEN = BigInteger.valueOf(10);
     static final int NR3HEAD = 0x03;
     
@@ -424,17 +474,10 @@ public class ASN1DERFormat extends TypeFallFormat<byte[]> implements TypeBind<by
      */
     @Override
     public byte[] mapFormat(Map map) {
-        Packet pac = new PacketA();
         if (map instanceof CHOICE) {
             return enumFormat(map);
         }
-        for ( Object o : map.values() ) {
-            pac.write(Rebind.valueOf(o, this));
-        }
-        if ( !(map instanceof ASN1Tag) ) { // SEQUENCE Tag
-            map = new SEQUENCEMap();
-        }
-        return encodeDER((ASN1Tag)map, pac.toByteArray());
+        return new ASN1DEREncoder(this).encode(map);
     }
     
     /**
@@ -445,37 +488,18 @@ public class ASN1DERFormat extends TypeFallFormat<byte[]> implements TypeBind<by
      */
     @Override
     public byte[] listFormat(List list) {
-        Packet pac = new PacketA();
-        for ( Object o : list ) {
-            pac.write(Rebind.valueOf(o, this));
-        }
-        if ( !(list instanceof ASN1Tag) ) {
-            list = new SEQUENCEList();
-        }
-        return encodeDER((ASN1Tag)list, pac.toByteArray());
+        return new ASN1DEREncoder(this).encode(list);
     }
 
     /**
      * SET / SET OF.
-     * DERではソートされる
+     * DERではソートされる. 要素は1回だけ符号化して並べ替える
      * @param set Set系 collection
      * @return SET
      */
     @Override
     public byte[] setFormat(Set set) {
-        ASN1Convert cnv = new ASN1Convert();
-        SEQUENCEList<ASN1Tag> seq = SEQUENCEList.SET();
-        
-        for ( Object o : set ) {
-            seq.add(Rebind.valueOf(o, cnv));
-//            pac.write(Rebind.valueOf(o, this));
-        }
-        Collections.sort(seq);
-        Packet pac = new PacketA();
-        for ( ASN1Tag t : seq ) {
-            pac.write((byte[])t.rebind(this));
-        }
-        return encodeDER(seq, pac.toByteArray());
+        return new ASN1DEREncoder(this).encode(set);
     }
     
     /**
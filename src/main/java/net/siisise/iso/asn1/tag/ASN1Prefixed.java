@@ -22,6 +22,8 @@ import net.siisise.iso.asn1.ASN1Cls;
 import net.siisise.iso.asn1.ASN1StructMap;
 import net.siisise.iso.asn1.ASN1Tag;
 import net.siisise.iso.asn1.ASN1Util;
+import net.siisise.iso.asn1.ASN1X690;
+import net.siisise.iso.asn1.ASN1X690BER;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -56,6 +58,16 @@ public class ASN1Prefixed<T extends ASN1Tag> extends ASN1StructMap<T> {
         super(cls, tag);
     }
 
+    /**
+     * EXPLICIT.
+     * BigInteger を作らない.
+     * @param cls ASN.1 Class
+     * @param tag tag 番号
+     */
+    public ASN1Prefixed(ASN1Cls cls, int tag) {
+        super(cls, tag);
+    }
+
     /**
      * とりあえずEXPLICIT.
      * @param cls ASN.1 class
@@ -86,7 +98,7 @@ public class ASN1Prefixed<T extends ASN1Tag> extends ASN1StructMap<T> {
     }
 
     public ASN1Prefixed(int tag) {
-        this(BigInteger.valueOf(tag));
+        this(ASN1Cls.CONTEXT_SPECIFIC, tag);
     }
 
     /**
@@ -95,7 +107,17 @@ public class ASN1Prefixed<T extends ASN1Tag> extends ASN1StructMap<T> {
      * @param asn 中身
      */
     public ASN1Prefixed(int tag, T asn) {
-        this(BigInteger.valueOf(tag), asn);
+        this(ASN1Cls.CONTEXT_SPECIFIC, tag);
+        put(key(), asn);
+        base = asn;
+    }
+
+    /**
+     * tag 番号の key.
+     * @return 10進数の tag 番号
+     */
+    private String key() {
+        return tag == null ? Integer.toString(tagNo) : tag.toString();
     }
 
     /**
@@ -128,15 +150,26 @@ public class ASN1Prefixed<T extends ASN1Tag> extends ASN1StructMap<T> {
      */
     @Override
     public void decodeBody(Input data, int length) {
+        decodeBody(data, length, new ASN1X690BER());
+    }
+
+    /**
+     * EXPLICIT
+     * @param data 素DATA入力
+     * @param length DATA長
+     * @param decoder 呼び出し元の decoder
+     */
+    @Override
+    public void decodeBody(Input data, int length, ASN1X690 decoder) {
         clear();
         if ( implicit ) { // 未対応
             byte[] d = new byte[length];
             data.read(d);
             base = (T)new OCTETSTRING(this.getASN1Cls(), getTag(), d);
         } else {
-            base = (T)ASN1Util.toASN1(data);
+            base = (T)decoder.decode(data);
         }
-        put(tag.toString(),base);
+        put(key(), base);
     }
 
     /**
@@ -174,9 +207,11 @@ public class ASN1Prefixed<T extends ASN1Tag> extends ASN1StructMap<T> {
     public void decodeXML(Element element) {
         clear();
         cls = ASN1Cls.valueOf(element.getAttribute("class"));
-        tag = new BigInteger(element.getAttribute("tag"));
+        BigInteger t = new BigInteger(element.getAttribute("tag"));
+        tagNo = t.intValue();
+        tag = t.bitLength() < 32 ? null : t;
         base = (T)ASN1Util.toASN1(element);
-        put(tag.toString(), base);
+        put(key(), base);
     }
 
 }
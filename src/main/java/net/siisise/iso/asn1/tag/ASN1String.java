@@ -18,8 +18,10 @@ package net.siisise.iso.asn1.tag;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import net.siisise.bind.format.TypeFormat;
+import net.siisise.io.Input;
 import net.siisise.iso.asn1.ASN1;
 import net.siisise.iso.asn1.ASN1Object;
+import net.siisise.iso.asn1.ASN1X690;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -56,16 +58,37 @@ public class ASN1String extends ASN1Object<String> implements CharSequence {
 
     @Override
     public void decodeBody( byte[] val ) {
+        decodeBody(val, 0, val.length);
+    }
+
+    /**
+     * decoder の作業領域から読む.
+     * @param in 入力
+     * @param length 長さ
+     * @param decoder 呼び出し元の decoder
+     */
+    @Override
+    public void decodeBody(Input in, int length, ASN1X690 decoder) {
+        decoder.contents(in, length, this::decodeBody);
+    }
+
+    /**
+     * 配列の範囲から読む.
+     * @param val 配列
+     * @param offset 位置
+     * @param length 長さ
+     */
+    public void decodeBody( byte[] val, int offset, int length ) {
 //        data = (byte[]) val.clone();
         switch ( tag ) {
         case UTF8String:
-            string = new String(val, StandardCharsets.UTF_8);
+            string = new String(val, offset, length, StandardCharsets.UTF_8);
             break;
         case BMPString: // ISO 10646-1 UCS-2 基本多言語面
-            string = new String(val, StandardCharsets.UTF_16BE);
+            string = new String(val, offset, length, StandardCharsets.UTF_16BE);
             break;
         case UniversalString:  // UCS-4 CharacterString 証明書では互換用
-                string = new String(val, Charset.forName("utf-32be"));
+                string = new String(val, offset, length, Charset.forName("utf-32be"));
             break;
         case IA5String: // ASCII ITU-T T.50 IRA の旧称 INTERNATIONAL ALPHABET No. 5
         case PrintableString:
@@ -75,10 +98,10 @@ public class ASN1String extends ASN1Object<String> implements CharSequence {
         case VideotexString:
         case VisibleString:
         case UTCTime: // VisibleString と同じ
-            string = new String(val, StandardCharsets.US_ASCII);
+            string = new String(val, offset, length, StandardCharsets.US_ASCII);
             break;
         case TeletexString: // ISO-8859-1 証明書では互換のみ 仮実装 ITU-T T.61 ページ切り替えは未対応 cp1036 cp20261
-            string = new String(val, StandardCharsets.ISO_8859_1);
+            string = new String(val, offset, length, StandardCharsets.ISO_8859_1);
             break;
         default:
             throw new UnsupportedOperationException( "Unknown String " + getId() + " yet.");
@@ -150,6 +173,7 @@ public class ASN1String extends ASN1Object<String> implements CharSequence {
 
     @Override
     public void setValue( String val ) {
+        modified();
         string = val;
     }
     
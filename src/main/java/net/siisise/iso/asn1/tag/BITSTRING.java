@@ -17,10 +17,13 @@ package net.siisise.iso.asn1.tag;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.BitSet;
 import net.siisise.bind.format.TypeFormat;
+import net.siisise.block.ReadableBlock;
 import net.siisise.io.BASE64;
 import net.siisise.io.BigBitPacket;
+import net.siisise.io.Input;
 import net.siisise.io.LittleBitPacket;
 import net.siisise.iso.asn1.ASN1;
 import net.siisise.iso.asn1.ASN1Cls;
@@ -41,6 +44,20 @@ import org.w3c.dom.Element;
 public class BITSTRING extends ASN1Object<byte[]> {
 
     private byte[] data;
+    /**
+     * 複製しない参照.
+     * 未使用ビット数を除いた本体部分
+     */
+    private ReadableBlock view;
+    /**
+     * map したファイルなどの参照.
+     * 未使用ビット数を除いた本体部分
+     */
+    private ByteBuffer buffer;
+    /**
+     * asByteBuffer で参照を読んだもの. 未使用ビットは 0
+     */
+    private ByteBuffer copied;
     /**
      * 全長ビット
      */
@@ -150,6 +167,155 @@ public class BITSTRING extends ASN1Object<byte[]> {
         System.arraycopy(data, 1, this.data, 0, data.length - 1);
         // BER では不要なビットを掃除する
         this.data[this.data.length - 1] &= 0x100 - ((1<<(unbits)));
+        view = null;
+        buffer = null;
+        copied = null;
+    }
+
+    /**
+     * DER decode.
+     * 未使用ビット数を読んでから本体を直接読むので複製は1回のみ.
+     * @param in 入力
+     * @param length 未使用ビット数 + 本体 の長さ
+     */
+    @Override
+    public void decodeBody( Input in, int length ) {
+        if ( length < 1 ) throw new IllegalStateException();
+        int unbits = in.read();
+        if ( unbits < 0 || unbits > 7 ) throw new IllegalStateException();
+        data = new byte[length - 1];
+        int r = 0;
+        while (r < data.length) {
+            int n = in.read(data, r, data.length - r);
+            if (n <= 0) {
+                throw new IllegalStateException("BITSTRING[" + r + "] require " + data.length);
+            }
+            r += n;
+        }
+        bitlen = data.length * 8L - unbits;
+        view = null;
+        buffer = null;
+        copied = null;
+        if ( data.length > 0 ) {
+            data[data.length - 1] &= 0x100 - (1 << unbits);
+        }
+    }
+
+    /**
+     * 複製せずに元データを参照する.
+     * 参照している間は元データを変更しないこと.
+     * @param contents 未使用ビット数 + 本体
+     */
+    public void view(ReadableBlock contents) {
+        if ( contents.length() < 1 ) throw new IllegalStateException();
+        int unbits = contents.read();
+        if ( unbits > 7 ) throw new IllegalStateException();
+        view = contents.readBlock(contents.length());
+        bitlen = view.length() * 8L - unbits;
+        data = null;
+        buffer = null;
+        copied = null;
+    }
+
+    /**
+     * 複製せずに ByteBuffer を参照する.
+     * 参照している間は元データを変更しないこと.
+     * @param contents 未使用ビット数 + 本体
+     */
+    public void view(ByteBuffer contents) {
+        if ( contents.remaining() < 1 ) throw new IllegalStateException();
+        ByteBuffer bb = contents.slice();
+        int unbits = bb.get() & 0xff;
+        if ( unbits > 7 ) throw new IllegalStateException();
+        buffer = bb.slice().asReadOnlyBuffer();
+        copied = null;
+        bitlen = buffer.remaining() * 8L - unbits;
+        data = null;
+        view = null;
+    }
+
+    /**
+     * 参照状態.
+     * @return true byte[] 未生成
+     */
+    public boolean isView() {
+        return data == null && (view != null || buffer != null);
+    }
+
+    /**
+     * 全長ビット.
+     * @return ビット長
+     */
+    public long bitLength() {
+        return bitlen;
+    }
+
+    /**
+     * 本体の複製.
+     * 未使用ビットは 0 にする
+     * @return 複製
+     */
+    public byte[] copy() {
+        if (data == null && (view != null || buffer != null)) {
+            return readBits();
+        }
+        return bytes().clone();
+    }
+
+    /**
+     * 読み込み専用の ByteBuffer.
+     * 参照状態は解除しない. 未使用ビットが 0 の ByteBuffer の参照は複製しない.
+     * それ以外の参照は1回だけ読んで使い回す.
+     * @return 本体
+     */
+    public ByteBuffer asByteBuffer() {
+        if (data == null && (view != null || buffer != null)) {
+            if (buffer != null && clean(buffer)) {
+                return buffer.duplicate();
+            }
+            if (copied == null) {
+                copied = ByteBuffer.wrap(readBits()).asReadOnlyBuffer();
+            }
+            return copied.duplicate();
+        }
+        return ByteBuffer.wrap(bytes()).asReadOnlyBuffer();
+    }
+
+    /**
+     * 未使用ビットが 0 か.
+     */
+    private boolean clean(ByteBuffer bb) {
+        int len = bb.remaining();
+        int unbits = (int)(len * 8L - bitlen);
+        return len == 0 || (bb.get(bb.position() + len - 1) & ((1 << unbits) - 1)) == 0;
+    }
+
+    /**
+     * 参照範囲を読む. 参照状態は解除しない.
+     * @return 本体 未使用ビットは 0
+     */
+    private byte[] readBits() {
+        byte[] d = view != null ? OCTETSTRING.readView(view) : OCTETSTRING.readBuffer(buffer);
+        int unbits = (int)(d.length * 8L - bitlen);
+        if ( d.length > 0 ) {
+            d[d.length - 1] &= 0x100 - (1 << unbits);
+        }
+        return d;
+    }
+
+    /**
+     * 参照状態のときは byte[] を生成する.
+     * BER では不要なビットを掃除する
+     * @return 本体 複製しない
+     */
+    byte[] bytes() {
+        if (data == null && (view != null || buffer != null)) {
+            data = readBits();
+            view = null;
+            buffer = null;
+            copied = null;
+        }
+        return data;
     }
 
     @Override
@@ -157,7 +323,7 @@ public class BITSTRING extends ASN1Object<byte[]> {
         Element ele = doc.createElement( ASN1.BITSTRING.name() );
         ele.setAttribute("bitlen", String.valueOf(bitlen));
         BASE64 b64 = new BASE64();
-        String val = b64.encode(data);
+        String val = b64.encode(bytes());
         ele.setTextContent(val);
         return ele;
     }
@@ -166,6 +332,9 @@ public class BITSTRING extends ASN1Object<byte[]> {
     public void decodeXML( Element element ) {
         bitlen = Long.parseLong(element.getAttribute("bitlen"));
         data = BASE64.decodeBase(element.getTextContent());
+        view = null;
+        buffer = null;
+        copied = null;
     }
 
     /**
@@ -175,6 +344,7 @@ public class BITSTRING extends ASN1Object<byte[]> {
      */
     @Override
     public String toString() {
+        bytes();
         try {
             return "BIT STRING len:" + data.length + " " + ASN1Util.toASN1List(data);
         } catch (UnsupportedOperationException e) {
@@ -192,7 +362,7 @@ public class BITSTRING extends ASN1Object<byte[]> {
      */
     @Override
     public byte[] getValue() {
-        return data.clone();
+        return bytes().clone();
     }
 
     /**
@@ -226,7 +396,11 @@ public class BITSTRING extends ASN1Object<byte[]> {
     }
 
     public void set(BigBitPacket pac) {
+        modified();
         bitlen = pac.bitLength();
+        view = null;
+        buffer = null;
+        copied = null;
         data = new byte[(int)((bitlen + 7L) / 8)];
         pac.read(data); // バイト単位のみ
         int b = (int)(bitlen % 8);
@@ -241,14 +415,18 @@ public class BITSTRING extends ASN1Object<byte[]> {
      */
     @Override
     public void setValue( byte[] val ) {
+        modified();
         data = val;
+        view = null;
+        buffer = null;
+        copied = null;
         bitlen = data.length * 8;
     }
 
     @Override
     public <V> V rebind(TypeFormat<V> format) {
         BigBitPacket pac = new BigBitPacket();
-        pac.writeBit(data, 0, bitlen);
+        pac.writeBit(bytes(), 0, bitlen);
         return format.bitArrayFormat(pac);
     }
 }
@@ -103,6 +103,7 @@ public class BOOLEAN extends ASN1Object<Boolean> {
 
     @Override
     public void setValue( Boolean v ) {
+        modified();
         val = v;
     }
 
@@ -77,12 +77,12 @@ public class GeneralizedTime extends ASN1String {
     }
 
     @Override
-    public void decodeBody( byte[] val ) {
+    public void decodeBody( byte[] val, int offset, int length ) {
 //        data = (byte[]) val.clone();
         switch ( ASN1.valueOf(getId()) ) {
         case UTCTime:
         case GeneralizedTime:
-            string = new String(val, StandardCharsets.UTF_8);
+            string = new String(val, offset, length, StandardCharsets.UTF_8);
             break;
         default:
             throw new UnsupportedOperationException( "Unknown GeneralizedTime " + getId() + " yet.");
@@ -111,6 +111,7 @@ public class GeneralizedTime extends ASN1String {
      * @param date 
      */
     public void from(long date) {
+        modified();
         Date da = new Date();
         da.setTime(date);
         string = toString(da);
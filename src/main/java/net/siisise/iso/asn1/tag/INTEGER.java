@@ -17,9 +17,11 @@ package net.siisise.iso.asn1.tag;
 
 import java.math.BigInteger;
 import net.siisise.bind.format.TypeFormat;
+import net.siisise.io.Input;
 import net.siisise.iso.asn1.ASN1;
 import net.siisise.iso.asn1.ASN1Object;
 import net.siisise.iso.asn1.ASN1Tag;
+import net.siisise.iso.asn1.ASN1X690;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -51,6 +53,27 @@ public class INTEGER extends ASN1Object<BigInteger> {
         val = new BigInteger(data);
     }
 
+    /**
+     * decoder の作業領域から読む.
+     * @param in 入力
+     * @param length 長さ
+     * @param decoder 呼び出し元の decoder
+     */
+    @Override
+    public void decodeBody(Input in, int length, ASN1X690 decoder) {
+        decoder.contents(in, length, this::decodeBody);
+    }
+
+    /**
+     * 配列の範囲から読む.
+     * @param src 配列
+     * @param offset 位置
+     * @param length 長さ
+     */
+    public void decodeBody(byte[] src, int offset, int length) {
+        val = new BigInteger(src, offset, length);
+    }
+
     @Override
     public Element encodeXML(Document doc) {
         Element ele = doc.createElement(ASN1.INTEGER.name());
@@ -112,6 +135,7 @@ public class INTEGER extends ASN1Object<BigInteger> {
 
     @Override
     public void setValue(BigInteger v) {
+        modified();
         val = v;
     }
 
@@ -31,8 +31,10 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import javax.xml.parsers.ParserConfigurationException;
 import net.siisise.bind.format.TypeFormat;
+import net.siisise.io.Input;
 import net.siisise.iso.asn1.ASN1;
 import net.siisise.iso.asn1.ASN1Object;
+import net.siisise.iso.asn1.ASN1X690;
 import net.siisise.xml.XElement;
 import net.siisise.xml.XMLIO;
 import org.w3c.dom.Document;
@@ -171,8 +173,32 @@ public class OBJECTIDENTIFIER extends ASN1Object<String> {
 
     @Override
     public void decodeBody(byte[] data) {
+        decodeBody(data, 0, data.length);
+    }
+
+    /**
+     * decoder の作業領域から読む.
+     * @param in 入力
+     * @param length 長さ
+     * @param decoder 呼び出し元の decoder
+     */
+    @Override
+    public void decodeBody(Input in, int length, ASN1X690 decoder) {
+        decoder.contents(in, length, this::decodeBody);
+    }
+
+    /**
+     * 配列の範囲から読む.
+     * @param data 配列
+     * @param offset 位置
+     * @param length 長さ
+     */
+    public void decodeBody(byte[] data, int offset, int length) {
+        if (length < 1) {
+            throw new IllegalStateException("OID length " + length);
+        }
         list.clear();
-        int z = data[0] & 0xff;
+        int z = data[offset] & 0xff;
         list.add(Integer.toString(z / 40));
         list.add(Integer.toString(z % 40));
         StringBuilder code; // 表示系へ
@@ -180,14 +206,17 @@ public class OBJECTIDENTIFIER extends ASN1Object<String> {
         code.append((int) z / 40);
         code.append('.');
         code.append((int) z % 40);
-        int off = 0;
+        int off = offset;
+        int end = offset + length;
         //   long d;
         BigInteger bi;
-        while (off < data.length - 1) {
+        while (off < end - 1) {
             //   d = 0;
             bi = BigInteger.ZERO;
             do {
-                off++;
+                if (++off >= end) {
+                    throw new IllegalStateException("OID");
+                }
                 //       d <<= 7;
                 bi = bi.shiftLeft(7);
                 //        d += data[off] & 0x7f;
@@ -283,6 +312,7 @@ public class OBJECTIDENTIFIER extends ASN1Object<String> {
 
     @Override
     public void setValue(String id) {
+        modified();
         identifier = id;
         list = Arrays.asList(identifier.split("\\."));
     }
@@ -332,6 +362,59 @@ public class OBJECTIDENTIFIER extends ASN1Object<String> {
         return new OBJECTIDENTIFIER(oid);
     }
 
+    /**
+     * DER の内容. X.690 8.19
+     * 18桁以下の数は BigInteger を使わない.
+     * @return 内容
+     * @throws IllegalStateException 2つ未満の枝, 最初の枝が 0-2 でない, 2つめの枝が 40 以上
+     */
+    byte[] contents() {
+        if (list.size() < 2) {
+            throw new IllegalStateException("OID arcs " + identifier);
+        }
+        String first = list.get(0);
+        String second = list.get(1);
+        if (!first.matches("[0-2]") || !second.matches("[0-9]+")
+                || (!first.equals("2") && (second.length() > 2 || Integer.parseInt(second) >= 40))) {
+            throw new IllegalStateException("OID arcs " + identifier);
+        }
+        int size = 0;
+        for (String s : list) {
+            size += s.length() / 2 + 2;
+        }
+        byte[] d = new byte[size];
+        int p;
+        if (second.length() <= 18) {
+            p = arc(d, 0, Long.parseLong(first) * 40 + Long.parseLong(second));
+        } else {
+            p = arc(d, 0, BigInteger.valueOf(Long.parseLong(first) * 40).add(new BigInteger(second)));
+        }
+        for (int i = 2; i < list.size(); i++) {
+            String s = list.get(i);
+            p = s.length() <= 18 ? arc(d, p, Long.parseLong(s)) : arc(d, p, new BigInteger(s));
+        }
+        return Arrays.copyOf(d, p);
+    }
+
+    /**
+     * 7bit ずつ上位から.
+     */
+    private static int arc(byte[] d, int p, long v) {
+        for (int i = (63 - Long.numberOfLeadingZeros(v | 1)) / 7; i > 0; i--) {
+            d[p++] = (byte) (0x80 | (v >>> (7 * i)));
+        }
+        d[p++] = (byte) (v & 0x7f);
+        return p;
+    }
+
+    private static int arc(byte[] d, int p, BigInteger v) {
+        for (int i = (Math.max(v.bitLength(), 1) - 1) / 7; i > 0; i--) {
+            d[p++] = (byte) (0x80 | (v.shiftRight(7 * i).intValue() & 0x7f));
+        }
+        d[p++] = (byte) (v.intValue() & 0x7f);
+        return p;
+    }
+
     @Override
     public Element encodeXML(Document doc) {
         Element ele = doc.createElement(ASN1.OBJECTIDENTIFIER.name());
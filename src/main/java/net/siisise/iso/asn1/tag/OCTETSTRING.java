@@ -17,9 +17,11 @@ package net.siisise.iso.asn1.tag;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.siisise.bind.format.TypeFormat;
+import net.siisise.block.ReadableBlock;
 import net.siisise.io.BASE64;
 import net.siisise.iso.asn1.ASN1;
 import net.siisise.iso.asn1.ASN1Cls;
@@ -33,28 +35,186 @@ import org.w3c.dom.Element;
  */
 public class OCTETSTRING extends ASN1Object<byte[]> {
     private byte[] data;
+    /**
+     * 複製しない参照.
+     * getValue() などで byte[] が必要になるまで元データを参照する
+     */
+    private ReadableBlock view;
+    /**
+     * map したファイルなどの参照.
+     */
+    private ByteBuffer buffer;
+    /**
+     * asByteBuffer で ReadableBlock の参照を読んだもの
+     */
+    private ByteBuffer copied;
     
     public OCTETSTRING() {
         super( ASN1.OCTETSTRING );
     }
 
+    /**
+     * @param d 内容 複製する
+     */
     public OCTETSTRING(byte[] d) {
         super( ASN1.OCTETSTRING );
-        data = d; // コピーしたほうがいい?
+        data = d == null ? null : d.clone(); // 外から変更されると記憶した DER と合わなくなる
     }
     
     public OCTETSTRING(ASN1Cls cls, BigInteger tag) {
         super(cls, tag);
     }
 
+    /**
+     * BigInteger を作らない.
+     * @param cls class
+     * @param tag tag 番号
+     */
+    public OCTETSTRING(ASN1Cls cls, int tag) {
+        super(cls, tag);
+    }
+
+    /**
+     * @param cls class
+     * @param tag tag 番号
+     * @param d 内容 複製する
+     */
     public OCTETSTRING(ASN1Cls cls, BigInteger tag, byte[] d) {
         super(cls, tag);
-        data = d;
+        data = d == null ? null : d.clone();
     }
 
     @Override
     public void decodeBody(byte[] src) {
         data = src;
+        view = null;
+        buffer = null;
+        copied = null;
+    }
+
+    /**
+     * 複製せずに元データを参照する.
+     * 参照している間は元データを変更しないこと.
+     * @param contents 内容の範囲
+     */
+    public void view(ReadableBlock contents) {
+        view = contents;
+        data = null;
+        buffer = null;
+        copied = null;
+    }
+
+    /**
+     * 複製せずに ByteBuffer を参照する.
+     * 参照している間は元データを変更しないこと.
+     * @param contents 内容の範囲 position から limit まで
+     */
+    public void view(ByteBuffer contents) {
+        buffer = contents.slice().asReadOnlyBuffer();
+        data = null;
+        view = null;
+        copied = null;
+    }
+
+    /**
+     * 参照状態.
+     * @return true byte[] 未生成
+     */
+    public boolean isView() {
+        return data == null && (view != null || buffer != null);
+    }
+
+    /**
+     * 内容のバイト長.
+     * @return 長さ
+     */
+    public int length() {
+        if (data != null) {
+            return data.length;
+        } else if (view != null) {
+            return (int)view.length();
+        } else if (buffer != null) {
+            return buffer.remaining();
+        }
+        return 0;
+    }
+
+    /**
+     * 内容の複製.
+     * @return 複製
+     */
+    public byte[] copy() {
+        if (data == null && view != null) {
+            return readView(view);
+        } else if (data == null && buffer != null) {
+            return readBuffer(buffer);
+        }
+        return data == null ? new byte[0] : data.clone();
+    }
+
+    /**
+     * 読み込み専用の ByteBuffer.
+     * 参照状態は解除しない. ReadableBlock の参照は配列を公開しないので、1回だけ読んで使い回す.
+     * ByteBuffer の参照は複製しない.
+     * @return 内容
+     */
+    public ByteBuffer asByteBuffer() {
+        if (data == null && buffer != null) {
+            return buffer.duplicate();
+        } else if (data == null && view != null) {
+            if (copied == null) {
+                copied = ByteBuffer.wrap(readView(view)).asReadOnlyBuffer();
+            }
+            return copied.duplicate();
+        }
+        return ByteBuffer.wrap(data == null ? new byte[0] : data).asReadOnlyBuffer();
+    }
+
+    /**
+     * ByteBuffer の参照.
+     * @return 参照 ByteBuffer の参照状態でなければ null
+     */
+    ByteBuffer mapped() {
+        return data == null && buffer != null ? buffer.duplicate() : null;
+    }
+
+    /**
+     * 内容を ReadableBlock として参照する.
+     * 複製はしない. ByteBuffer の参照のみ読んだものを返す.
+     * @return 内容
+     */
+    public ReadableBlock asBlock() {
+        if (data == null && view != null) {
+            view.seek(0);
+            return view;
+        } else if (data == null && buffer != null) {
+            return ReadableBlock.wrap(readBuffer(buffer));
+        }
+        return ReadableBlock.wrap(data == null ? new byte[0] : data);
+    }
+
+    /**
+     * 参照範囲を byte[] にする.
+     * @param block 参照範囲
+     * @return 複製
+     */
+    static byte[] readView(ReadableBlock block) {
+        block.seek(0);
+        byte[] d = new byte[(int)block.length()];
+        block.read(d);
+        block.seek(0);
+        return d;
+    }
+
+    /**
+     * ByteBuffer の参照を byte[] にする.
+     * @param buffer 参照範囲
+     * @return 複製
+     */
+    static byte[] readBuffer(ByteBuffer buffer) {
+        byte[] d = new byte[buffer.remaining()];
+        buffer.duplicate().get(d);
+        return d;
     }
 
     @Override
@@ -62,7 +222,7 @@ public class OCTETSTRING extends ASN1Object<byte[]> {
         Element ele = doc.createElement( ASN1.OCTETSTRING.name() );
        // ele.setAttribute("ex", new String(data, StandardCharsets.UTF_8));
         BASE64 b64 = new BASE64();
-        String val = b64.encode(data);
+        String val = b64.encode(value());
         ele.setTextContent(val);
         return ele;
     }
@@ -70,9 +230,13 @@ public class OCTETSTRING extends ASN1Object<byte[]> {
     @Override
     public void decodeXML( Element element ) {
         data = BASE64.decodeBase(element.getTextContent());
+        view = null;
+        buffer = null;
+        copied = null;
     }
     
     public String toString() {
+            value();
             try {
                 return "OCTET STRING len;" + data.length + ASN1Util.toASN1List(data);
             } catch (java.lang.UnsupportedOperationException ex) {
@@ -103,21 +267,50 @@ public class OCTETSTRING extends ASN1Object<byte[]> {
     }
 
     /**
-     * TODO: 場合によっては要コピー
-     * @return 
+     * 内容の複製.
+     * 参照状態の場合はここで byte[] を生成する.
+     * 複製なので変更しても記憶した DER とずれない. 変更は setValue で行う.
+     * @return 複製 内容がない場合は null
      */
     @Override
     public byte[] getValue() {
+        byte[] d = value();
+        return d == null ? null : d.clone();
+    }
+
+    /**
+     * 内容.
+     * 参照状態の場合はここで byte[] を生成する.
+     * @return 複製しない内容 変更しないこと
+     */
+    byte[] value() {
+        if (data == null && view != null) {
+            data = readView(view);
+            view = null;
+            copied = null;
+        } else if (data == null && buffer != null) {
+            data = readBuffer(buffer);
+            buffer = null;
+            copied = null;
+        }
         return data;
     }
 
+    /**
+     * 内容の変更.
+     * @param val 内容 複製する
+     */
     @Override
     public void setValue( byte[] val ) {
-        data = val;
+        modified();
+        data = val == null ? null : val.clone();
+        view = null;
+        buffer = null;
+        copied = null;
     }
 
     @Override
     public <V> V rebind(TypeFormat<V> format) {
-        return format.byteArrayFormat(data);
+        return format.byteArrayFormat(getValue());
     }
 }
@@ -76,6 +76,7 @@ public class REAL<T extends Number> extends ASN1Object<T> {
 
     @Override
     public void setValue(T val) {
+        modified();
         this.val = val;
     }
 /*
@@ -91,9 +91,9 @@ public class SEQUENCEList<T extends ASN1Tag> extends ASN1StructList<T> implement
      */
     @Override
     public <V> V rebind(TypeFormat<V> format) {
-        if ( getTag().equals(ASN1.SEQUENCE.tag) ) {
+        if ( getTagNumber() == ASN1.SEQUENCE.id ) {
             return format.listFormat(this);
-        } else if ( getTag().equals(ASN1.SET.tag)){
+        } else if ( getTagNumber() == ASN1.SET.id ){
             return format.setFormat(new HashSet(this));
         }
         throw new UnsupportedOperationException();
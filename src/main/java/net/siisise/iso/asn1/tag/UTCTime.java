@@ -111,12 +111,14 @@ public class UTCTime extends ASN1String {
      * @param date 
      */
     public void from(long date) {
+        modified();
         Date da = new Date();
         da.setTime(date);
         string = toString(da);
     }
 
     public void from(Date date) {
+        modified();
         string = toString(date);
     }
 
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import net.siisise.io.Packet;
+import net.siisise.io.PacketA;
+import net.siisise.iso.asn1.tag.ASN1String;
+import net.siisise.iso.asn1.tag.INTEGER;
+import net.siisise.iso.asn1.tag.OBJECTIDENTIFIER;
+import net.siisise.iso.asn1.tag.OCTETSTRING;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class ASN1ArenaTest {
+
+    /**
+     * SEQUENCE { SEQUENCE { INTEGER 300, OID 1.2.840.113549, UTF8String "abc", OCTET STRING "xyz" }, [0] (不定長) { INTEGER 5 } }
+     */
+    static final byte[] BER = {
+        0x30, 0x1f,
+        0x30, 0x16,
+        0x02, 0x02, 0x01, 0x2c,
+        0x06, 0x06, 0x2a, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xf7, 0x0d,
+        0x0c, 0x03, 0x61, 0x62, 0x63,
+        0x04, 0x03, 0x78, 0x79, 0x7a,
+        (byte) 0xa0, (byte) 0x80, 0x02, 0x01, 0x05, 0x00, 0x00
+    };
+
+    static Packet stream(byte[] src) {
+        Packet pac = new PacketA();
+        pac.write(src);
+        return pac;
+    }
+
+    /**
+     * 構造は複製せずに子要素ごとに slab に読む.
+     */
+    @Test
+    public void testDecode() {
+        ASN1Tag expected = ASN1Util.toASN1(BER);
+        // 構造は slab の 1/4 を超えるが単独では確保しない
+        ASN1Tag tag = ASN1Util.toASN1(stream(BER), new ASN1Arena(32));
+        assertEquals(expected, tag);
+        ASN1StructList inner = (ASN1StructList) ((ASN1StructList) tag).get(0);
+        assertEquals(300, ((INTEGER) inner.get(0)).getValue().intValue());
+        assertEquals("1.2.840.113549", ((OBJECTIDENTIFIER) inner.get(1)).getValue());
+        assertEquals("abc", ((ASN1String) inner.get(2)).getValue());
+        OCTETSTRING os = (OCTETSTRING) inner.get(3);
+        assertTrue(os.isView());
+        assertArrayEquals(new byte[] {0x78, 0x79, 0x7a}, os.getValue());
+        ASN1StructList ex = (ASN1StructList) ((ASN1StructList) tag).get(1);
+        assertEquals(5, ((INTEGER) ex.get(0)).getValue().intValue());
+
+        ASN1X690DER der = new ASN1X690DER();
+        der.setArena(new ASN1Arena(32));
+        byte[] definite = {0x30, 0x08, 0x02, 0x02, 0x01, 0x2c, 0x0c, 0x02, 0x61, 0x62};
+        assertEquals(ASN1Util.toASN1(definite), der.decode(stream(definite)));
+    }
+
+    /**
+     * 構造の長さと子要素が合わない.
+     */
+    @Test
+    public void testLength() {
+        byte[] bad = {0x30, 0x04, 0x02, 0x01, 0x05, 0x02, 0x01, 0x06};
+        assertThrows(IllegalStateException.class, () -> ASN1Util.toASN1(stream(bad), new ASN1Arena()));
+    }
+}
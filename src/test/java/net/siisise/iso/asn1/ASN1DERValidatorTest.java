@@ -0,0 +1,183 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.nio.charset.StandardCharsets;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class ASN1DERValidatorTest {
+
+    /**
+     * 16進数.
+     * @param hex 空白区切り可
+     * @return byte列
+     */
+    static byte[] hex(String hex) {
+        String h = hex.replace(" ", "");
+        byte[] d = new byte[h.length() / 2];
+        for (int i = 0; i < d.length; i++) {
+            d[i] = (byte) Integer.parseInt(h.substring(i * 2, i * 2 + 2), 16);
+        }
+        return d;
+    }
+
+    /**
+     * TLV.
+     * @param id 識別子
+     * @param contents 内容 128 byte 未満
+     * @return TLV
+     */
+    static byte[] tlv(int id, byte[] contents) {
+        byte[] d = new byte[contents.length + 2];
+        d[0] = (byte) id;
+        d[1] = (byte) contents.length;
+        System.arraycopy(contents, 0, d, 2, contents.length);
+        return d;
+    }
+
+    static void valid(String hex) {
+        valid(hex(hex));
+    }
+
+    static void valid(byte[] src) {
+        ASN1DERValidator.validate(src);
+        assertTrue(ASN1DERValidator.isValid(src));
+    }
+
+    static void invalid(long offset, String hex) {
+        invalid(offset, hex(hex));
+    }
+
+    static void invalid(long offset, byte[] src) {
+        ASN1FormatException e = assertThrows(ASN1FormatException.class, () -> ASN1DERValidator.validate(src));
+        assertEquals(offset, e.getOffset(), e.getMessage());
+        assertFalse(ASN1DERValidator.isValid(src));
+    }
+
+    /**
+     * 識別子.
+     */
+    @Test
+    public void testTag() {
+        valid("9f 1f 00");
+        invalid(0, "1f 02 00"); // 短い形で書ける
+        invalid(0, "9f 80 1f 00"); // 先頭の 0x80
+        invalid(2, "30 04 9f 80 1f 00");
+    }
+
+    /**
+     * 長さ.
+     */
+    @Test
+    public void testLength() {
+        byte[] long128 = new byte[131];
+        long128[0] = 0x04;
+        long128[1] = (byte) 0x81;
+        long128[2] = (byte) 0x80;
+        valid(long128);
+
+        invalid(0, "04 80 00 00"); // 不定長
+        invalid(0, "04 81 01 00"); // 短い形で書ける
+        byte[] padded = new byte[132];
+        padded[0] = 0x04;
+        padded[1] = (byte) 0x82;
+        padded[2] = 0x00;
+        padded[3] = (byte) 0x80;
+        invalid(0, padded); // 先頭の 0
+        invalid(0, "04 05 00"); // 足りない
+        invalid(2, "30 03 04 02 00 00");
+    }
+
+    /**
+     * BOOLEAN は 0x00, 0xFF のみ.
+     */
+    @Test
+    public void testBoolean() {
+        valid("01 01 ff");
+        valid("01 01 00");
+        invalid(0, "01 01 01");
+        invalid(0, "01 02 ff ff");
+        invalid(2, "30 03 01 01 01");
+    }
+
+    /**
+     * INTEGER は最小の符号化.
+     */
+    @Test
+    public void testInteger() {
+        valid("02 01 00");
+        valid("02 02 00 80");
+        valid("02 02 ff 7f");
+        invalid(0, "02 00");
+        invalid(0, "02 02 00 7f");
+        invalid(0, "02 02 ff 80");
+        invalid(5, "30 07 02 01 05 02 02 00 01");
+    }
+
+    /**
+     * BIT STRING の未使用 bit.
+     */
+    @Test
+    public void testBitString() {
+        valid("03 01 00");
+        valid("03 02 01 02");
+        invalid(0, "03 00");
+        invalid(0, "03 01 01"); // 空で未使用 bit あり
+        invalid(0, "03 02 08 00");
+        invalid(0, "03 02 01 01"); // 未使用 bit が 0 でない
+        invalid(2, "30 04 03 02 01 01");
+    }
+
+    /**
+     * OBJECT IDENTIFIER の subidentifier.
+     */
+    @Test
+    public void testObjectIdentifier() {
+        valid("06 03 2a 86 48");
+        invalid(0, "06 00");
+        invalid(0, "06 03 2a 80 01"); // 先頭の 0x80
+        invalid(0, "06 02 2a 81"); // 途中で終わる
+        invalid(2, "30 05 06 03 2a 80 01");
+    }
+
+    /**
+     * UTCTime, GeneralizedTime は Z で終わる.
+     */
+    @Test
+    public void testTime() {
+        valid(tlv(0x17, "991231235959Z".getBytes(StandardCharsets.US_ASCII)));
+        valid(tlv(0x18, "20250101000000Z".getBytes(StandardCharsets.US_ASCII)));
+        invalid(0, tlv(0x17, "9912312359+0900".getBytes(StandardCharsets.US_ASCII)));
+        invalid(0, tlv(0x18, "20250101000000".getBytes(StandardCharsets.US_ASCII)));
+        invalid(0, "37 00"); // 構造型
+    }
+
+    /**
+     * SET は符号化の昇順.
+     */
+    @Test
+    public void testSetOrder() {
+        valid("31 06 02 01 04 02 01 05");
+        valid("31 05 02 01 04 05 00");
+        invalid(5, "31 06 02 01 05 02 01 04");
+        invalid(7, "30 08 31 06 02 01 05 02 01 04");
+        valid("30 06 02 01 05 02 01 04"); // SEQUENCE は順序を問わない
+    }
+}
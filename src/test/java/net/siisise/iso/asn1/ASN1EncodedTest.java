@@ -0,0 +1,134 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import net.siisise.iso.asn1.tag.INTEGER;
+import net.siisise.iso.asn1.tag.OCTETSTRING;
+import net.siisise.iso.asn1.tag.SEQUENCEList;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class ASN1EncodedTest {
+
+    /**
+     * BER はそのまま返し、DER 出力には使わない.
+     */
+    @Test
+    public void testBER() {
+        byte[] ber = {0x30, (byte) 0x81, 0x06, 0x02, 0x01, 0x05, 0x01, 0x01, 0x01};
+        ASN1StructList seq = (ASN1StructList) ASN1Util.toASN1Preserved(ber);
+        assertArrayEquals(ber, seq.getEncoded());
+        assertNull(seq.getEncodedDER());
+        assertTrue(ASN1DERValidator.isValid(seq.encodeAll()));
+    }
+
+    /**
+     * DER は再利用し、変更した要素から上は再符号化する.
+     */
+    @Test
+    public void testDER() {
+        byte[] der = {0x30, 0x05, 0x02, 0x01, 0x05, 0x05, 0x00};
+        ASN1StructList seq = (ASN1StructList) ASN1Util.toASN1Preserved(der);
+        assertArrayEquals(der, seq.getEncodedDER());
+        assertArrayEquals(der, seq.encodeAll());
+        ((INTEGER) seq.get(0)).setValue(BigInteger.valueOf(6));
+        assertNull(seq.getEncoded());
+        assertArrayEquals(new byte[] {0x30, 0x05, 0x02, 0x01, 0x06, 0x05, 0x00}, seq.encodeAll());
+    }
+
+    /**
+     * SET OF は符号化順. 記憶した DER は変更で作り直す.
+     */
+    @Test
+    public void testMemo() {
+        SEQUENCEList<INTEGER> set = SEQUENCEList.SET();
+        set.add(new INTEGER(2));
+        set.add(new INTEGER(1));
+        assertArrayEquals(new byte[] {0x31, 0x06, 0x02, 0x01, 0x01, 0x02, 0x01, 0x02}, set.encodeAll());
+        assertNotNull(set.getEncodedDER());
+        set.get(0).setValue(BigInteger.ZERO);
+        assertNull(set.getEncodedDER());
+        assertArrayEquals(new byte[] {0x31, 0x06, 0x02, 0x01, 0x00, 0x02, 0x01, 0x01}, set.encodeAll());
+    }
+
+    /**
+     * 外から持っている byte[] を変更しても記憶した DER とずれない.
+     */
+    @Test
+    public void testOctetsCopy() {
+        byte[] a = {0x61};
+        OCTETSTRING os = new OCTETSTRING(a);
+        SEQUENCEList<ASN1Tag> seq = new SEQUENCEList<>();
+        seq.add(os);
+        byte[] der = {0x30, 0x03, 0x04, 0x01, 0x61};
+        assertArrayEquals(der, seq.encodeAll());
+        a[0] = 0x62;
+        os.getValue()[0] = 0x63;
+        assertArrayEquals(der, seq.encodeAll());
+        os.setValue(a);
+        a[0] = 0x64;
+        assertArrayEquals(new byte[] {0x30, 0x03, 0x04, 0x01, 0x62}, seq.encodeAll());
+    }
+
+    /**
+     * Iterator からの削除も変更.
+     */
+    @Test
+    public void testIteratorRemove() {
+        byte[] der = {0x30, 0x06, 0x02, 0x01, 0x05, 0x02, 0x01, 0x06};
+        ASN1StructList seq = (ASN1StructList) ASN1Util.toASN1Preserved(der);
+        assertArrayEquals(der, seq.encodeAll());
+        Iterator it = seq.iterator();
+        it.next();
+        it.remove();
+        assertNull(seq.getEncoded());
+        assertArrayEquals(new byte[] {0x30, 0x03, 0x02, 0x01, 0x06}, seq.encodeAll());
+    }
+
+    /**
+     * 変更しない木は複数スレッドから符号化してもよい.
+     */
+    @Test
+    public void testThreads() throws Exception {
+        byte[] src = ASN1X690Test.large(-1);
+        ASN1Tag[] trees = {ASN1Util.toASN1Preserved(src), ASN1Util.toASN1(src)};
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (ASN1Tag tree : trees) {
+                List<Future<byte[]>> r = new ArrayList<>();
+                for (int i = 0; i < 32; i++) {
+                    r.add(pool.submit(() -> tree.encodeAll()));
+                }
+                for (Future<byte[]> f : r) {
+                    assertArrayEquals(src, f.get());
+                }
+                assertArrayEquals(src, tree.encodeAll());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.siisise.block.ReadableBlock;
+import net.siisise.io.Input;
+import net.siisise.io.Packet;
+import net.siisise.io.PacketA;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class ASN1HandlerTest {
+
+    /**
+     * SEQUENCE (不定長) { INTEGER 5, SEQUENCE { OCTET STRING "a" }, [1] (不定長) { NULL }, BOOLEAN TRUE }
+     */
+    static final byte[] BER = {
+        0x30, (byte) 0x80,
+        0x02, 0x01, 0x05,
+        0x30, 0x03, 0x04, 0x01, 0x61,
+        (byte) 0xa1, (byte) 0x80, 0x05, 0x00, 0x00, 0x00,
+        0x01, 0x01, (byte) 0xff,
+        0x00, 0x00
+    };
+
+    static final List<String> EVENTS = Arrays.asList(
+            "start UNIVERSAL 16 -1",
+            "primitive UNIVERSAL 2 1",
+            "start UNIVERSAL 16 3",
+            "primitive UNIVERSAL 4 1",
+            "end UNIVERSAL 16",
+            "start CONTEXT_SPECIFIC 1 -1",
+            "primitive UNIVERSAL 5 0",
+            "end CONTEXT_SPECIFIC 1",
+            "primitive UNIVERSAL 1 1",
+            "end UNIVERSAL 16");
+
+    static class Recorder implements ASN1Handler {
+        final List<String> events = new ArrayList<>();
+        final long skip;
+
+        Recorder(long skip) {
+            this.skip = skip;
+        }
+
+        @Override
+        public boolean startConstructed(ASN1Cls cls, long tag, long length) {
+            if (tag == skip) {
+                events.add("skip " + cls + " " + tag);
+                return false;
+            }
+            events.add("start " + cls + " " + tag + " " + length);
+            return true;
+        }
+
+        @Override
+        public void endConstructed(ASN1Cls cls, long tag) {
+            events.add("end " + cls + " " + tag);
+        }
+
+        @Override
+        public void primitive(ASN1Cls cls, long tag, ReadableBlock contents) {
+            events.add("primitive " + cls + " " + tag + " " + contents.length());
+        }
+    }
+
+    static Input stream(byte[] src) {
+        Packet pac = new PacketA();
+        pac.write(src);
+        return pac;
+    }
+
+    /**
+     * 定長と不定長が入れ子になった入力のイベント順.
+     */
+    @Test
+    public void testEventOrder() {
+        Recorder block = new Recorder(-1);
+        new ASN1X690BER().parseAll(ReadableBlock.wrap(BER), block);
+        assertEquals(EVENTS, block.events);
+
+        Recorder stream = new Recorder(-1);
+        new ASN1X690BER().parseAll(stream(BER), stream);
+        assertEquals(EVENTS, stream.events);
+    }
+
+    /**
+     * 読み飛ばした構造の内容は通知しない.
+     */
+    @Test
+    public void testSkip() {
+        List<String> expected = Arrays.asList(
+                "start UNIVERSAL 16 -1",
+                "primitive UNIVERSAL 2 1",
+                "start UNIVERSAL 16 3",
+                "primitive UNIVERSAL 4 1",
+                "end UNIVERSAL 16",
+                "skip CONTEXT_SPECIFIC 1",
+                "primitive UNIVERSAL 1 1",
+                "end UNIVERSAL 16");
+        Recorder block = new Recorder(1);
+        new ASN1X690BER().parseAll(ReadableBlock.wrap(BER), block);
+        assertEquals(expected, block.events);
+
+        Recorder stream = new Recorder(1);
+        new ASN1X690BER().parseAll(stream(BER), stream);
+        assertEquals(expected, stream.events);
+    }
+
+    /**
+     * 定長の構造と内容の長さが合わない.
+     */
+    @Test
+    public void testLengthMismatch() {
+        byte[] bad = {0x30, 0x02, 0x02, 0x01, 0x05};
+        assertThrows(IllegalStateException.class, () -> new ASN1X690BER().parseAll(stream(bad), new Recorder(-1)));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import net.siisise.iso.asn1.tag.OCTETSTRING;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class ASN1IncrementalDecoderTest {
+
+    /**
+     * INTEGER 5
+     */
+    static final byte[] INT = {0x02, 0x01, 0x05};
+    /**
+     * SEQUENCE (不定長) { [31] (長い tag) NULL, SEQUENCE { BOOLEAN TRUE } }
+     */
+    static final byte[] NESTED = {
+        0x30, (byte) 0x80,
+        (byte) 0x9f, 0x1f, 0x00,
+        0x30, 0x03, 0x01, 0x01, (byte) 0xff,
+        0x00, 0x00
+    };
+
+    /**
+     * OCTET STRING 長さ 200 (長さは 81 c8)
+     */
+    static byte[] octets() {
+        byte[] d = new byte[203];
+        d[0] = 0x04;
+        d[1] = (byte) 0x81;
+        d[2] = (byte) 200;
+        for (int i = 3; i < d.length; i++) {
+            d[i] = (byte) i;
+        }
+        return d;
+    }
+
+    static byte[] concat(byte[]... srcs) {
+        int len = 0;
+        for (byte[] s : srcs) {
+            len += s.length;
+        }
+        byte[] d = new byte[len];
+        int offset = 0;
+        for (byte[] s : srcs) {
+            System.arraycopy(s, 0, d, offset, s.length);
+            offset += s.length;
+        }
+        return d;
+    }
+
+    /**
+     * 分割して渡しても同じ frame になる.
+     */
+    @Test
+    public void testChunks() {
+        byte[] oct = octets();
+        byte[] src = concat(INT, NESTED, oct);
+        for (int chunk = 1; chunk <= src.length; chunk++) {
+            ASN1IncrementalDecoder dec = new ASN1IncrementalDecoder();
+            for (int offset = 0; offset < src.length; offset += chunk) {
+                dec.feed(ByteBuffer.wrap(src, offset, Math.min(chunk, src.length - offset)));
+            }
+            assertFalse(dec.isPartial(), "chunk " + chunk);
+            assertArrayEquals(INT, dec.pollFrame(), "chunk " + chunk);
+            assertArrayEquals(NESTED, dec.pollFrame(), "chunk " + chunk);
+            assertArrayEquals(oct, dec.pollFrame(), "chunk " + chunk);
+            assertNull(dec.pollFrame());
+        }
+    }
+
+    /**
+     * 識別子と長さの途中で切れた場合.
+     */
+    @Test
+    public void testSplitHeader() {
+        ASN1IncrementalDecoder dec = new ASN1IncrementalDecoder();
+        // 長い tag の途中
+        assertEquals(0, dec.feed(ByteBuffer.wrap(new byte[] {(byte) 0x9f})));
+        assertTrue(dec.isPartial());
+        assertEquals(0, dec.feed(ByteBuffer.wrap(new byte[] {0x1f})));
+        assertEquals(1, dec.feed(ByteBuffer.wrap(new byte[] {0x00})));
+        assertArrayEquals(new byte[] {(byte) 0x9f, 0x1f, 0x00}, dec.pollFrame());
+
+        // 長さの途中
+        byte[] oct = octets();
+        assertEquals(0, dec.feed(ByteBuffer.wrap(oct, 0, 2)));
+        assertTrue(dec.isPartial());
+        assertEquals(0, dec.feed(ByteBuffer.wrap(oct, 2, 100)));
+        assertEquals(1, dec.feed(ByteBuffer.wrap(oct, 102, oct.length - 102)));
+        assertFalse(dec.isPartial());
+
+        ASN1Tag tag = dec.poll();
+        assertTrue(tag instanceof OCTETSTRING);
+        assertArrayEquals(Arrays.copyOfRange(oct, 3, oct.length), ((OCTETSTRING) tag).getValue());
+        assertNull(dec.poll());
+    }
+
+    /**
+     * 途中の EOC と frame の上限.
+     */
+    @Test
+    public void testLimit() {
+        ASN1IncrementalDecoder eoc = new ASN1IncrementalDecoder();
+        assertThrows(IllegalStateException.class, () -> eoc.feed(ByteBuffer.wrap(new byte[] {0x00, 0x00})));
+
+        ASN1IncrementalDecoder small = new ASN1IncrementalDecoder(100);
+        byte[] oct = octets();
+        assertThrows(IllegalStateException.class, () -> small.feed(ByteBuffer.wrap(oct, 0, 3)));
+    }
+}
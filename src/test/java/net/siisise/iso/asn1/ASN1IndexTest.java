@@ -0,0 +1,141 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import net.siisise.iso.asn1.tag.INTEGER;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class ASN1IndexTest {
+
+    /**
+     * SEQUENCE {
+     *   INTEGER -2,
+     *   SEQUENCE(不定長) { INTEGER 384, OCTET STRING "a" },
+     *   [0] { INTEGER 5 }
+     * }
+     */
+    static final byte[] BER = {
+        0x30, 0x13,
+        0x02, 0x01, (byte) 0xfe,
+        0x30, (byte) 0x80, 0x02, 0x02, 0x01, (byte) 0x80, 0x04, 0x01, 0x61, 0x00, 0x00,
+        (byte) 0xa0, 0x03, 0x02, 0x01, 0x05
+    };
+
+    /**
+     * 親, 子, 兄弟をたどる.
+     */
+    @Test
+    public void testNavigation() {
+        ASN1Index idx = new ASN1Index(BER);
+        assertEquals(7, idx.size());
+        assertEquals(-1, idx.parent(0));
+        assertEquals(1, idx.firstChild(0));
+        assertEquals(2, idx.nextSibling(1));
+        assertEquals(5, idx.nextSibling(2));
+        assertEquals(-1, idx.nextSibling(5));
+        assertEquals(5, idx.child(0, 2));
+        assertEquals(-1, idx.child(0, 3));
+        assertEquals(3, idx.childCount(0));
+        assertEquals(2, idx.childCount(2));
+        assertEquals(-1, idx.firstChild(1));
+        assertEquals(2, idx.parent(4));
+        assertEquals(0, idx.parent(5));
+        assertEquals(5, idx.parent(6));
+        assertEquals(ASN1Cls.CONTEXT_SPECIFIC, idx.getASN1Cls(5));
+        assertEquals(0, idx.tagNumber(5));
+        assertTrue(idx.isConstructed(5));
+        assertEquals(5, ((INTEGER) idx.decode(6)).getValue().intValue());
+    }
+
+    /**
+     * 不定長の内容は EndOfContent を含まない.
+     */
+    @Test
+    public void testIndefinite() {
+        ASN1Index idx = new ASN1Index(BER);
+        assertTrue(idx.isIndefinite(2));
+        assertFalse(idx.isIndefinite(0));
+        assertEquals(7, idx.contentsOffset(2));
+        assertEquals(7, idx.contentsLength(2));
+        assertArrayEquals(new byte[] {0x61}, idx.readBytes(4));
+    }
+
+    /**
+     * 符号拡張.
+     */
+    @Test
+    public void testReadLong() {
+        ASN1Index idx = new ASN1Index(BER);
+        assertEquals(-2, idx.readLong(1));
+        assertEquals(384, idx.readLong(3));
+        assertEquals(-2, idx.readInteger(1).intValue());
+
+        ASN1Index min = new ASN1Index(new byte[] {0x02, 0x08, (byte) 0x80, 0, 0, 0, 0, 0, 0, 0});
+        assertEquals(Long.MIN_VALUE, min.readLong(0));
+        ASN1Index over = new ASN1Index(new byte[] {0x02, 0x09, 0x00, (byte) 0x80, 0, 0, 0, 0, 0, 0, 0});
+        assertThrows(ArithmeticException.class, () -> over.readLong(0));
+        assertThrows(ArithmeticException.class, () -> new ASN1Index(BER).readLong(0));
+    }
+
+    /**
+     * 長さの誤り.
+     */
+    @Test
+    public void testMalformed() {
+        // 子が親の終わりを超える
+        assertThrows(IllegalStateException.class,
+                () -> new ASN1Index(new byte[] {0x30, 0x03, 0x02, 0x02, 0x01, (byte) 0x80}));
+        // 入力より長い
+        assertThrows(IllegalStateException.class, () -> new ASN1Index(new byte[] {0x04, 0x05, 0x61}));
+        // 単一型の不定長
+        assertThrows(IllegalStateException.class, () -> new ASN1Index(new byte[] {0x04, (byte) 0x80, 0x00, 0x00}));
+        // EndOfContent がない
+        assertThrows(IllegalStateException.class, () -> new ASN1Index(new byte[] {0x30, (byte) 0x80, 0x05, 0x00}));
+        // 不定長の外の EndOfContent
+        assertThrows(IllegalStateException.class, () -> new ASN1Index(new byte[] {0x00, 0x00}));
+    }
+
+    /**
+     * 制限.
+     */
+    @Test
+    public void testOptions() {
+        DecoderOptions depth = new DecoderOptions();
+        depth.setMaxDepth(1);
+        assertThrows(IllegalStateException.class, () -> new ASN1Index(BER, depth));
+        depth.setMaxDepth(2);
+        assertEquals(7, new ASN1Index(BER, depth).size());
+
+        DecoderOptions length = new DecoderOptions();
+        length.setMaxLength(0x12);
+        assertThrows(IllegalStateException.class, () -> new ASN1Index(BER, length));
+
+        DecoderOptions children = new DecoderOptions();
+        children.setMaxChildren(2);
+        assertThrows(IllegalStateException.class, () -> new ASN1Index(BER, children));
+
+        byte[] deep = new byte[400]; // 不定長 100段 後半は EndOfContent
+        for (int i = 0; i < 100; i++) {
+            deep[i * 2] = 0x30;
+            deep[i * 2 + 1] = (byte) 0x80;
+        }
+        assertThrows(IllegalStateException.class, () -> new ASN1Index(deep, new DecoderOptions()));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import net.siisise.iso.asn1.tag.BITSTRING;
+import net.siisise.iso.asn1.tag.INTEGER;
+import net.siisise.iso.asn1.tag.OCTETSTRING;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ */
+public class ASN1MappedFileTest {
+
+    /**
+     * SEQUENCE { INTEGER 5, OCTET STRING "ab", [0] (不定長) { BIT STRING 0x80/1 } }
+     */
+    static final byte[] BER = {
+        0x30, 0x11,
+        0x02, 0x01, 0x05,
+        0x04, 0x02, 0x61, 0x62,
+        (byte) 0xa0, (byte) 0x80, 0x03, 0x02, 0x07, (byte) 0x80, 0x00, 0x00
+    };
+
+    @TempDir
+    Path dir;
+
+    /**
+     * OCTETSTRING, BITSTRING は map を参照する.
+     */
+    @Test
+    public void testDecode() throws IOException {
+        Path path = dir.resolve("test.ber");
+        Files.write(path, BER);
+        try (ASN1MappedFile f = ASN1Util.map(path)) {
+            ASN1StructList seq = (ASN1StructList) f.decode(0);
+            assertEquals(3, seq.size());
+            assertEquals(5, ((INTEGER) seq.get(0)).getValue().intValue());
+            OCTETSTRING os = (OCTETSTRING) seq.get(1);
+            assertTrue(os.isView());
+            assertEquals(2, os.length());
+            assertEquals(0x61, os.asByteBuffer().get(0));
+            assertArrayEquals(new byte[] {0x61, 0x62}, os.getValue());
+
+            ASN1StructList ex = (ASN1StructList) seq.get(2);
+            assertTrue(ex.isInefinite());
+            BITSTRING bs = (BITSTRING) ex.get(0);
+            assertTrue(bs.isView());
+            assertEquals(1, bs.bitLength());
+        }
+    }
+
+    /**
+     * 要素は参照したときに map からデコードする.
+     */
+    @Test
+    public void testLazy() throws IOException {
+        Path path = dir.resolve("test.ber");
+        Files.write(path, BER);
+        byte[] der;
+        try (ASN1MappedFile f = new ASN1MappedFile(path)) {
+            assertFalse(f.isLazy());
+            der = f.decode(0).encodeAll();
+        }
+        try (ASN1MappedFile f = ASN1Util.map(path)) {
+            assertTrue(f.isLazy());
+            ASN1StructList seq = (ASN1StructList) f.decode(0);
+            assertTrue(seq.isLazy());
+            assertEquals(3, seq.size());
+            assertTrue(seq.isLazy()); // size は map 上で数える
+            OCTETSTRING os = (OCTETSTRING) seq.get(1);
+            assertTrue(os.isView());
+            assertTrue(seq.isLazy()); // 3番目は未展開
+            ASN1StructList ex = (ASN1StructList) seq.get(2);
+            assertFalse(seq.isLazy());
+            assertTrue(ex.isInefinite());
+            assertTrue(ex.isLazy());
+            assertEquals(1, ((BITSTRING) ex.get(0)).bitLength());
+            assertArrayEquals(der, f.decode(0).encodeAll());
+        }
+    }
+
+    /**
+     * map を順に読む.
+     */
+    @Test
+    public void testReader() throws IOException {
+        Path path = dir.resolve("test.ber");
+        Files.write(path, BER);
+        try (ASN1MappedFile f = ASN1Util.map(path)) {
+            ASN1Reader r = f.reader(0);
+            assertEquals(ASN1Reader.Event.START_CONSTRUCTED, r.next());
+            assertEquals(5, r.readInt());
+            ByteBuffer dst = ByteBuffer.allocate(4);
+            assertEquals(2, r.readOctets(dst));
+            assertEquals(0x62, dst.get(1));
+            assertEquals(ASN1Reader.Event.START_CONSTRUCTED, r.next());
+            assertEquals(-1, r.getLength());
+            r.skipContents();
+            assertEquals(ASN1Reader.Event.END_CONSTRUCTED, r.next());
+            assertEquals(BER.length, r.position());
+            assertEquals(ASN1Reader.Event.END_DOCUMENT, r.next());
+
+            r = f.reader(2); // INTEGER から
+            assertEquals(5, r.readInt());
+        }
+    }
+
+    /**
+     * 位置 + 長さ が溢れる長さ, 上限を超える長さ.
+     */
+    @Test
+    public void testLength() throws IOException {
+        Path path = dir.resolve("over.ber");
+        Files.write(path, new byte[] {0x30, (byte) 0x88, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+            (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xfe, 0x05, 0x00});
+        try (ASN1MappedFile f = ASN1Util.map(path)) {
+            assertThrows(IllegalStateException.class, () -> f.contentsLength(0));
+            assertThrows(IllegalStateException.class, () -> f.decode(0));
+        }
+
+        path = dir.resolve("test.ber");
+        Files.write(path, BER);
+        try (ASN1MappedFile f = ASN1Util.map(path)) {
+            DecoderOptions options = new DecoderOptions();
+            options.setMaxLength(1);
+            f.setOptions(options);
+            assertEquals(0x11, f.contentsLength(0)); // 構造はファイルの大きさまで
+            assertThrows(IllegalStateException.class, () -> f.contents(5));
+        }
+    }
+
+    /**
+     * 経路で map 上の位置を探す.
+     */
+    @Test
+    public void testPath() throws IOException {
+        Path path = dir.resolve("test.ber");
+        Files.write(path, BER);
+        try (ASN1MappedFile f = ASN1Util.map(path)) {
+            assertEquals(5, ASN1Path.compile("1").find(f));
+            assertEquals(11, ASN1Path.compile("[CONTEXT 0]/BITSTRING").find(f));
+            assertEquals(Arrays.asList(2L, 5L, 9L), ASN1Path.compile("*").findAll(f));
+            assertEquals(-1, ASN1Path.compile("3").find(f));
+            assertEquals(5, ((INTEGER) ASN1Path.compile("INTEGER").decode(f)).getValue().intValue());
+        }
+    }
+}
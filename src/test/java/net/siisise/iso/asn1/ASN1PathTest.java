@@ -0,0 +1,144 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.siisise.block.ReadableBlock;
+import net.siisise.iso.asn1.tag.INTEGER;
+import net.siisise.iso.asn1.tag.OCTETSTRING;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class ASN1PathTest {
+
+    /**
+     * SEQUENCE {
+     *   INTEGER 1,
+     *   [1] { INTEGER 2 },
+     *   SEQUENCE(不定長) { INTEGER 3, INTEGER 4, OCTET STRING "a" },
+     *   [1] { INTEGER 5 }
+     * }
+     */
+    static final byte[] BER = {
+        0x30, 0x1a,
+        0x02, 0x01, 0x01,
+        (byte) 0xa1, 0x03, 0x02, 0x01, 0x02,
+        0x30, (byte) 0x80, 0x02, 0x01, 0x03, 0x02, 0x01, 0x04, 0x04, 0x01, 0x61, 0x00, 0x00,
+        (byte) 0xa1, 0x03, 0x02, 0x01, 0x05
+    };
+
+    private static int value(ReadableBlock tlv) {
+        return ((INTEGER) ASN1Util.toASN1(tlv)).getValue().intValue();
+    }
+
+    private static List<Integer> values(String path) {
+        List<Integer> r = new ArrayList<>();
+        for (ReadableBlock tlv : ASN1Path.compile(path).findAll(ReadableBlock.wrap(BER))) {
+            r.add(value(tlv));
+        }
+        return r;
+    }
+
+    /**
+     * 何番目の子.
+     */
+    @Test
+    public void testIndex() {
+        assertEquals(1, value(ASN1Path.compile("0").find(BER)));
+        assertEquals(2, value(ASN1Path.compile("1/0").find(BER)));
+        assertEquals(5, value(ASN1Path.compile("3/0").find(BER)));
+        assertNull(ASN1Path.compile("4").find(BER));
+        assertNull(ASN1Path.compile("0/0").find(BER)); // 単一型の子
+        assertEquals(28, ASN1Path.compile("").find(BER).length());
+    }
+
+    /**
+     * すべての子.
+     */
+    @Test
+    public void testAny() {
+        assertEquals(4, ASN1Path.compile("*").findAll(ReadableBlock.wrap(BER)).size());
+        assertEquals(Arrays.asList(2, 3, 5), values("*/0"));
+        assertEquals(3, ASN1Path.compile("2/*").findAll(ReadableBlock.wrap(BER)).size());
+    }
+
+    /**
+     * tag, 型名.
+     */
+    @Test
+    public void testTag() {
+        assertEquals(Arrays.asList(2, 5), values("[CONTEXT 1]/0"));
+        assertEquals(Arrays.asList(2, 5), values("[1]/INTEGER"));
+        assertEquals(Arrays.asList(3, 4), values("[UNIVERSAL 16]/INTEGER"));
+        assertEquals(Arrays.asList(1), values("INTEGER"));
+        assertTrue(values("[APPLICATION 1]").isEmpty());
+        OCTETSTRING os = (OCTETSTRING) ASN1Path.compile("SEQUENCE/OCTETSTRING").decode(BER);
+        assertArrayEquals(new byte[] {0x61}, os.getValue());
+    }
+
+    /**
+     * find は最初の1つ, findAll はすべて.
+     */
+    @Test
+    public void testFindAll() {
+        ASN1Path p = ASN1Path.compile("[1]/0");
+        assertEquals(2, value(p.find(BER)));
+        assertEquals(Arrays.asList(2, 5), values("[1]/0"));
+        assertEquals(2, value(ASN1Path.compile("*/INTEGER").find(BER)));
+        assertEquals(Arrays.asList(2, 3, 4, 5), values("*/INTEGER"));
+    }
+
+    /**
+     * 不定長の親は番号で止めずに EndOfContent まで読む.
+     * 後ろの兄弟の位置がずれない.
+     */
+    @Test
+    public void testIndefinite() {
+        assertEquals(3, value(ASN1Path.compile("2/0").find(BER)));
+        assertEquals(4, value(ASN1Path.compile("2/1").find(BER)));
+        assertEquals(Arrays.asList(3), values("2/0"));
+        byte[] ber = {
+            0x30, (byte) 0x80,
+            0x30, (byte) 0x80, 0x02, 0x01, 0x01, 0x02, 0x01, 0x02, 0x00, 0x00,
+            0x30, (byte) 0x80, 0x02, 0x01, 0x03, 0x00, 0x00,
+            0x00, 0x00
+        };
+        List<ReadableBlock> r = ASN1Path.compile("*/0").findAll(ReadableBlock.wrap(ber));
+        assertEquals(2, r.size());
+        assertEquals(1, value(r.get(0)));
+        assertEquals(3, value(r.get(1)));
+    }
+
+    /**
+     * 解析できない段は位置と文字列を示す.
+     */
+    @Test
+    public void testCompileError() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ASN1Path.compile("0/FOO"));
+        assertTrue(e.getMessage().contains("step 1"));
+        assertTrue(e.getMessage().contains("FOO"));
+        e = assertThrows(IllegalArgumentException.class, () -> ASN1Path.compile("[CONTEXT x]"));
+        assertTrue(e.getMessage().contains("[CONTEXT x]"));
+        e = assertThrows(IllegalArgumentException.class, () -> ASN1Path.compile("[FOO 1]"));
+        assertTrue(e.getMessage().contains("[FOO 1]"));
+        assertThrows(IllegalArgumentException.class, () -> ASN1Path.compile("0//1"));
+    }
+}
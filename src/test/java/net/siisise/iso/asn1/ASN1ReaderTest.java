@@ -0,0 +1,219 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.nio.ByteBuffer;
+import net.siisise.block.ReadableBlock;
+import net.siisise.io.Input;
+import net.siisise.io.Packet;
+import net.siisise.io.PacketA;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class ASN1ReaderTest {
+
+    /**
+     * SEQUENCE { INTEGER 300, OID 1.2.840, SEQUENCE { NULL }, OCTET STRING (CER 分割) }
+     */
+    static final byte[] BER = {
+        0x30, (byte) 0x80,
+        0x02, 0x02, 0x01, 0x2c,
+        0x06, 0x03, 0x2a, (byte) 0x86, 0x48,
+        0x30, 0x02, 0x05, 0x00,
+        0x24, (byte) 0x80, 0x04, 0x01, 0x61, 0x04, 0x02, 0x62, 0x63, 0x00, 0x00,
+        0x00, 0x00
+    };
+
+    static Input stream(byte[] src) {
+        Packet pac = new PacketA();
+        pac.write(src);
+        return pac;
+    }
+
+    @Test
+    public void testNext() {
+        next(new ASN1Reader(ReadableBlock.wrap(BER)));
+    }
+
+    /**
+     * ストリームから同じイベント.
+     */
+    @Test
+    public void testStream() {
+        next(new ASN1Reader(stream(BER)));
+    }
+
+    private void next(ASN1Reader r) {
+        assertEquals(ASN1Reader.Event.START_CONSTRUCTED, r.next());
+        assertEquals(ASN1.SEQUENCE.id, r.getTagNumber());
+        assertEquals(-1, r.getLength());
+        assertEquals(300, r.readInt());
+        assertEquals("1.2.840", r.readOID());
+        r.skipValue();
+        ByteBuffer dst = ByteBuffer.allocate(8);
+        assertEquals(3, r.readOctets(dst));
+        assertEquals("abc", new String(dst.array(), 0, 3));
+        assertEquals(ASN1Reader.Event.END_CONSTRUCTED, r.next());
+        assertEquals(BER.length, r.position());
+        assertFalse(r.hasNext());
+        assertEquals(ASN1Reader.Event.END_DOCUMENT, r.next());
+    }
+
+    /**
+     * 不定長の入れ子.
+     * SEQUENCE { SEQUENCE { INTEGER 1 }, INTEGER 2 }
+     */
+    @Test
+    public void testIndefinite() {
+        byte[] ber = {0x30, (byte) 0x80, 0x30, (byte) 0x80, 0x02, 0x01, 0x01, 0x00, 0x00, 0x02, 0x01, 0x02, 0x00, 0x00};
+        for (Input in : new Input[] {ReadableBlock.wrap(ber), stream(ber)}) {
+            ASN1Reader r = new ASN1Reader(in);
+            assertEquals(ASN1Reader.Event.START_CONSTRUCTED, r.next());
+            assertEquals(-1, r.getLength());
+            assertEquals(ASN1Reader.Event.START_CONSTRUCTED, r.next());
+            assertEquals(2, r.getDepth());
+            assertEquals(1, r.readInt());
+            assertEquals(ASN1Reader.Event.END_CONSTRUCTED, r.next());
+            assertEquals(1, r.getDepth());
+            assertEquals(2, r.readInt());
+            assertEquals(ASN1Reader.Event.END_CONSTRUCTED, r.next());
+            assertEquals(0, r.getDepth());
+            assertEquals(ber.length, r.position());
+            assertFalse(r.hasNext());
+        }
+    }
+
+    /**
+     * 定長, 不定長の構造を読み飛ばす.
+     * SEQUENCE { SEQUENCE { INTEGER 1, INTEGER 2 }, SEQUENCE(不定長) { SEQUENCE { NULL } }, INTEGER 7 }
+     */
+    @Test
+    public void testSkipValue() {
+        byte[] ber = {
+            0x30, 0x13,
+            0x30, 0x06, 0x02, 0x01, 0x01, 0x02, 0x01, 0x02,
+            0x30, (byte) 0x80, 0x30, 0x02, 0x05, 0x00, 0x00, 0x00,
+            0x02, 0x01, 0x07
+        };
+        for (Input in : new Input[] {ReadableBlock.wrap(ber), stream(ber)}) {
+            ASN1Reader r = new ASN1Reader(in);
+            assertEquals(ASN1Reader.Event.START_CONSTRUCTED, r.next());
+            r.skipValue();
+            r.skipValue();
+            assertEquals(7, r.readInt());
+            assertEquals(ASN1Reader.Event.END_CONSTRUCTED, r.next());
+            assertFalse(r.hasNext());
+        }
+    }
+
+    /**
+     * 構造の途中から残りを読み飛ばす.
+     */
+    @Test
+    public void testSkipContents() {
+        byte[] ber = {0x30, 0x06, 0x02, 0x01, 0x01, 0x02, 0x01, 0x02, 0x05, 0x00};
+        ASN1Reader r = new ASN1Reader(stream(ber));
+        assertEquals(ASN1Reader.Event.START_CONSTRUCTED, r.next());
+        assertEquals(1, r.readInt());
+        r.skipContents();
+        assertEquals(ASN1Reader.Event.END_CONSTRUCTED, r.getEvent());
+        assertEquals(8, r.position());
+        assertEquals(ASN1Reader.Event.PRIMITIVE, r.next());
+        assertEquals(ASN1.NULL.id, r.getTagNumber());
+    }
+
+    /**
+     * BER の構造化 OCTET STRING. 分割の中の分割もつなげる.
+     */
+    @Test
+    public void testReadOctetsSegments() {
+        byte[] ber = {
+            0x24, (byte) 0x80,
+            0x04, 0x02, 0x61, 0x62,
+            0x24, 0x03, 0x04, 0x01, 0x63,
+            0x24, (byte) 0x80, 0x04, 0x01, 0x64, 0x00, 0x00,
+            0x00, 0x00
+        };
+        for (Input in : new Input[] {ReadableBlock.wrap(ber), stream(ber)}) {
+            ASN1Reader r = new ASN1Reader(in);
+            ByteBuffer dst = ByteBuffer.allocate(8);
+            assertEquals(4, r.readOctets(dst));
+            assertEquals("abcd", new String(dst.array(), 0, 4));
+            assertFalse(r.hasNext());
+        }
+    }
+
+    /**
+     * 途中で終わる入力.
+     */
+    @Test
+    public void testTruncated() {
+        // 内容が足りない
+        assertThrows(IllegalStateException.class, () -> new ASN1Reader(stream(new byte[] {0x04, 0x05, 0x61})).next());
+        assertThrows(IllegalStateException.class,
+                () -> new ASN1Reader(ReadableBlock.wrap(new byte[] {0x04, 0x05, 0x61})).next());
+        // 読み飛ばしが足りない
+        ASN1Reader r = new ASN1Reader(stream(new byte[] {0x30, 0x05, 0x02, 0x01, 0x01}));
+        r.next();
+        assertThrows(IllegalStateException.class, r::skipContents);
+        ASN1Reader b = new ASN1Reader(ReadableBlock.wrap(new byte[] {0x30, 0x05, 0x02, 0x01, 0x01}));
+        assertThrows(IllegalStateException.class, b::skipValue);
+        // EndOfContent がない
+        ASN1Reader e = new ASN1Reader(stream(new byte[] {0x30, (byte) 0x80, 0x02, 0x01, 0x01}));
+        e.next();
+        e.next();
+        assertThrows(IllegalStateException.class, e::next);
+    }
+
+    /**
+     * 構造の長さを超える要素, 定長の構造の中の EndOfContent.
+     */
+    @Test
+    public void testMalformed() {
+        ASN1Reader r = new ASN1Reader(ReadableBlock.wrap(new byte[] {0x30, 0x03, 0x04, 0x02, 0x61, 0x62}));
+        r.next();
+        assertThrows(IllegalStateException.class, r::next);
+        ASN1Reader e = new ASN1Reader(ReadableBlock.wrap(new byte[] {0x30, 0x02, 0x00, 0x00}));
+        e.next();
+        assertThrows(IllegalStateException.class, e::next);
+    }
+
+    /**
+     * DecoderOptions の深さ, 長さ.
+     */
+    @Test
+    public void testOptions() {
+        DecoderOptions options = new DecoderOptions();
+        options.setMaxDepth(2);
+        byte[] deep = new byte[200];
+        for (int i = 0; i < deep.length; i += 2) {
+            deep[i] = 0x30;
+            deep[i + 1] = (byte) 0x80;
+        }
+        ASN1Reader r = new ASN1Reader(stream(deep), options);
+        r.next();
+        r.next();
+        assertThrows(IllegalStateException.class, r::next);
+
+        options = new DecoderOptions();
+        options.setMaxLength(4);
+        ASN1Reader l = new ASN1Reader(stream(new byte[] {0x04, 0x05, 0x61, 0x62, 0x63, 0x64, 0x65}), options);
+        assertThrows(IllegalStateException.class, l::next);
+    }
+}
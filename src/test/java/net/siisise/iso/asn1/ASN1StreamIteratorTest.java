@@ -0,0 +1,78 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import net.siisise.iso.asn1.tag.INTEGER;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class ASN1StreamIteratorTest {
+
+    /**
+     * ノンブロッキングの channel で途中まで届いた TLV を待つ.
+     */
+    @Test
+    public void testNonBlocking() throws Exception {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        Thread writer = new Thread(() -> {
+            try {
+                byte[][] parts = {{0x02}, {0x01, 0x05, 0x02}, {0x01}, {0x06}};
+                for (byte[] p : parts) {
+                    Thread.sleep(20);
+                    pipe.sink().write(ByteBuffer.wrap(p));
+                }
+                pipe.sink().close();
+            } catch (IOException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        try (ASN1StreamIterator it = new ASN1StreamIterator(pipe.source())) {
+            assertTrue(it.hasNext());
+            assertEquals(5, ((INTEGER) it.next()).getValue().intValue());
+            assertTrue(it.hasNext());
+            assertEquals(6, ((INTEGER) it.next()).getValue().intValue());
+            assertFalse(it.hasNext());
+        }
+        writer.join();
+        pipe.source().close();
+    }
+
+    /**
+     * 最後まで読まずに閉じる.
+     */
+    @Test
+    public void testClose() throws Exception {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        pipe.sink().write(ByteBuffer.wrap(new byte[] {0x02, 0x01, 0x05}));
+        ASN1StreamIterator it = new ASN1StreamIterator(pipe.source());
+        assertEquals(5, ((INTEGER) it.next()).getValue().intValue());
+        it.close();
+        it.close();
+        assertTrue(pipe.source().isOpen()); // 入力は閉じない
+        pipe.sink().close();
+        assertFalse(it.hasNext());
+        pipe.source().close();
+    }
+}
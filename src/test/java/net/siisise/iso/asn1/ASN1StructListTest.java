@@ -0,0 +1,103 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import net.siisise.block.ReadableBlock;
+import net.siisise.iso.asn1.tag.ASN1String;
+import net.siisise.iso.asn1.tag.INTEGER;
+import net.siisise.iso.asn1.tag.OBJECTIDENTIFIER;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class ASN1StructListTest {
+
+    /**
+     * SEQUENCE { INTEGER 5, SEQUENCE { NULL, OCTET STRING "ab" }, BOOLEAN TRUE }
+     */
+    static final byte[] DER = {
+        0x30, 0x0e,
+        0x02, 0x01, 0x05,
+        0x30, 0x06, 0x05, 0x00, 0x04, 0x02, 0x61, 0x62,
+        0x01, 0x01, (byte) 0xff
+    };
+
+    static ASN1StructList decode(boolean lazy) {
+        ASN1X690BER ber = new ASN1X690BER();
+        ber.setLazy(lazy);
+        return (ASN1StructList) ber.decode(ReadableBlock.wrap(DER));
+    }
+
+    /**
+     * 遅延デコードは通常のデコードと同じ結果になる.
+     */
+    @Test
+    public void testLazy() {
+        ASN1StructList eager = decode(false);
+        ASN1StructList lazy = decode(true);
+        assertFalse(eager.isLazy());
+        assertTrue(lazy.isLazy());
+
+        assertEquals(3, lazy.size());
+        assertTrue(lazy.isLazy()); // size はヘッダのみで数える
+
+        assertEquals(eager.get(1), lazy.get(1));
+        assertTrue(lazy.isLazy()); // 3番目は未展開
+        assertEquals(2, ((ASN1StructList) lazy.get(1)).size());
+
+        assertEquals(eager.get(2), lazy.get(2));
+        assertFalse(lazy.isLazy());
+        assertEquals(eager, lazy);
+        assertArrayEquals(DER, lazy.encodeAll());
+    }
+
+    /**
+     * Iterator も順に展開する.
+     */
+    @Test
+    public void testIterator() {
+        ASN1StructList eager = decode(false);
+        int i = 0;
+        for (Object o : decode(true)) {
+            assertEquals(eager.get(i++), o);
+        }
+        assertEquals(3, i);
+    }
+
+    /**
+     * 値に変換する型は decoder の作業領域を使い回しても値が混ざらない.
+     */
+    @Test
+    public void testScratch() {
+        byte[] src = {
+            0x30, 0x17,
+            0x02, 0x02, 0x01, 0x2c, // 300
+            0x06, 0x06, 0x2a, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xf7, 0x0d, // 1.2.840.113549
+            0x0c, 0x03, (byte) 0xe3, (byte) 0x81, (byte) 0x82, // あ
+            0x02, 0x01, 0x05,
+            0x13, 0x01, 0x41 // A
+        };
+        ASN1StructList list = (ASN1StructList) new ASN1X690BER().decode(ReadableBlock.wrap(src));
+        assertEquals(5, list.size());
+        assertEquals(300, ((INTEGER) list.get(0)).getValue().intValue());
+        assertEquals("1.2.840.113549", ((OBJECTIDENTIFIER) list.get(1)).getValue());
+        assertEquals("\u3042", ((ASN1String) list.get(2)).getValue());
+        assertEquals(5, ((INTEGER) list.get(3)).getValue().intValue());
+        assertEquals("A", ((ASN1String) list.get(4)).getValue());
+    }
+}
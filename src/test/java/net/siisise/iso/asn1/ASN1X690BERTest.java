@@ -0,0 +1,124 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.math.BigInteger;
+import net.siisise.block.ReadableBlock;
+import net.siisise.io.Packet;
+import net.siisise.io.PacketA;
+import net.siisise.iso.asn1.tag.ASN1DEREncoder;
+import net.siisise.iso.asn1.tag.INTEGER;
+import net.siisise.iso.asn1.tag.NULL;
+import net.siisise.iso.asn1.tag.OCTETSTRING;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class ASN1X690BERTest {
+
+    /**
+     * SEQUENCE(不定長) {
+     *   INTEGER 5,
+     *   SEQUENCE(不定長) { OCTET STRING "a", OCTET STRING(不定長) { "bc", OCTET STRING(不定長) { "d" } } },
+     *   [0](不定長) { INTEGER 7 }
+     * }
+     * の後に NULL
+     */
+    static final byte[] BER = {
+        0x30, (byte) 0x80,
+        0x02, 0x01, 0x05,
+        0x30, (byte) 0x80,
+        0x04, 0x01, 0x61,
+        0x24, (byte) 0x80, 0x04, 0x02, 0x62, 0x63, 0x24, (byte) 0x80, 0x04, 0x01, 0x64, 0x00, 0x00, 0x00, 0x00,
+        0x00, 0x00,
+        (byte) 0xa0, (byte) 0x80, 0x02, 0x01, 0x07, 0x00, 0x00,
+        0x00, 0x00,
+        0x05, 0x00
+    };
+    static final byte[] DER = {
+        0x30, 0x12,
+        0x02, 0x01, 0x05,
+        0x30, 0x08, 0x04, 0x01, 0x61, 0x04, 0x03, 0x62, 0x63, 0x64,
+        (byte) 0xa0, 0x03, 0x02, 0x01, 0x07
+    };
+
+    private static void assertTree(ASN1Tag t) {
+        ASN1StructList list = (ASN1StructList) t;
+        assertTrue(list.isInefinite());
+        assertEquals(3, list.size());
+        assertEquals(BigInteger.valueOf(5), ((INTEGER) list.get(0)).getValue());
+        assertArrayEquals(new byte[] {0x61}, ((OCTETSTRING) list.get(1, 0)).getValue());
+        assertArrayEquals(new byte[] {0x62, 0x63, 0x64}, ((OCTETSTRING) list.get(1, 1)).getValue());
+        assertEquals(BigInteger.valueOf(7), ((INTEGER) list.get(2, 0)).getValue());
+        assertArrayEquals(DER, new ASN1DEREncoder().encode(t));
+    }
+
+    /**
+     * 入れ子の不定長をストリームから直接読んだものと、読み込み済みの入力から読んだものは同じ.
+     * 後ろの要素は読まない.
+     */
+    @Test
+    public void testIndefiniteStream() {
+        ASN1X690BER ber = new ASN1X690BER();
+        ReadableBlock block = ReadableBlock.wrap(BER);
+        ASN1Tag buffered = ber.decode(block);
+        assertTree(buffered);
+        assertEquals(2, block.length());
+
+        Packet stream = new PacketA();
+        stream.write(BER);
+        ASN1Tag direct = ber.decode(stream);
+        assertTree(direct);
+        assertEquals(BER.length - 2, ber.consumed);
+        assertEquals(2, stream.length());
+        assertTrue(ber.decode(stream) instanceof NULL);
+        assertArrayEquals(new ASN1DEREncoder().encode(buffered), new ASN1DEREncoder().encode(direct));
+    }
+
+    /**
+     * arena mode でも同じ.
+     */
+    @Test
+    public void testIndefiniteArena() {
+        ASN1X690BER ber = new ASN1X690BER();
+        ber.setArena(new ASN1Arena());
+        Packet stream = new PacketA();
+        stream.write(BER);
+        assertTree(ber.decode(stream));
+        assertEquals(2, stream.length());
+    }
+
+    /**
+     * EndOfContent がないまま入力が終わる.
+     */
+    @Test
+    public void testMissingEOC() {
+        Packet stream = new PacketA();
+        stream.write(new byte[] {0x30, (byte) 0x80, 0x24, (byte) 0x80, 0x04, 0x01, 0x61, 0x00, 0x00});
+        assertThrows(IllegalStateException.class, () -> new ASN1X690BER().decode(stream));
+    }
+
+    /**
+     * 分割に OCTET STRING 以外.
+     */
+    @Test
+    public void testBadSegment() {
+        byte[] ber = {0x24, (byte) 0x80, 0x02, 0x01, 0x01, 0x00, 0x00};
+        assertThrows(IllegalStateException.class, () -> new ASN1X690BER().decode(ReadableBlock.wrap(ber)));
+    }
+}
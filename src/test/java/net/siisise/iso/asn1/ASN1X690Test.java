@@ -0,0 +1,229 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import net.siisise.block.ReadableBlock;
+import net.siisise.iso.asn1.tag.ASN1DEREncoder;
+import net.siisise.iso.asn1.tag.INTEGER;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class ASN1X690Test {
+
+    /**
+     * [APPLICATION 1000] { INTEGER 5 }
+     */
+    static final byte[] HIGH = {0x7f, (byte) 0x87, 0x68, 0x03, 0x02, 0x01, 0x05};
+    /**
+     * [APPLICATION 2^63] { INTEGER 5 } long に収まらない
+     */
+    static final byte[] OVER = {0x7f, (byte) 0x81, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80,
+        (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x00, 0x03, 0x02, 0x01, 0x05};
+    /**
+     * [APPLICATION 2^64] { INTEGER 6 }
+     */
+    static final byte[] OVER2 = {0x7f, (byte) 0x82, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80,
+        (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x00, 0x03, 0x02, 0x01, 0x06};
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] d = new byte[a.length + b.length];
+        System.arraycopy(a, 0, d, 0, a.length);
+        System.arraycopy(b, 0, d, a.length, b.length);
+        return d;
+    }
+
+    @Test
+    public void testHighTagNumber() {
+        ASN1Tag t = new ASN1X690BER().decode(ReadableBlock.wrap(HIGH));
+        assertEquals(ASN1Cls.APPLICATION, t.getASN1Cls());
+        assertEquals(1000, t.getTagNumber());
+        assertEquals(BigInteger.valueOf(1000), t.getTag());
+        assertEquals(BigInteger.valueOf(5), ((INTEGER) ((ASN1StructList) t).get(0)).getValue());
+        assertArrayEquals(HIGH, new ASN1DEREncoder().encode(t));
+    }
+
+    @Test
+    public void testOverflowTagNumber() {
+        ASN1Tag t = new ASN1X690DER().decode(ReadableBlock.wrap(OVER));
+        assertEquals(-1, t.getTagNumber());
+        assertEquals(BigInteger.ONE.shiftLeft(63), t.getTag());
+        assertArrayEquals(OVER, new ASN1DEREncoder().encode(t));
+    }
+
+    /**
+     * long に収まらない tag 番号は要素ごとに持ち、decoder に残らない.
+     */
+    @Test
+    public void testOverflowNotShared() {
+        ASN1X690BER ber = new ASN1X690BER();
+        ReadableBlock in = ReadableBlock.wrap(concat(OVER, OVER2));
+        ASN1Tag a = ber.decode(in);
+        ASN1Tag b = ber.decode(in);
+        ASN1Tag c = ber.decode(ReadableBlock.wrap(HIGH));
+        assertEquals(BigInteger.ONE.shiftLeft(63), a.getTag());
+        assertEquals(BigInteger.ONE.shiftLeft(64), b.getTag());
+        assertEquals(BigInteger.valueOf(1000), c.getTag());
+    }
+
+    /**
+     * ASN1Reader は読んだ要素の tag を返す.
+     */
+    @Test
+    public void testReaderTag() {
+        ASN1Reader r = new ASN1Reader(ReadableBlock.wrap(concat(OVER, HIGH)));
+        assertEquals(ASN1Reader.Event.START_CONSTRUCTED, r.next());
+        assertEquals(-1, r.getTagNumber());
+        assertEquals(BigInteger.ONE.shiftLeft(63), r.getTag());
+        assertEquals(ASN1Reader.Event.PRIMITIVE, r.next());
+        assertEquals(BigInteger.valueOf(2), r.getTag());
+        assertEquals(ASN1Reader.Event.END_CONSTRUCTED, r.next());
+        assertEquals(ASN1Reader.Event.START_CONSTRUCTED, r.next());
+        assertEquals(1000, r.getTagNumber());
+        ASN1Tag inner = r.readTag();
+        assertEquals(BigInteger.valueOf(5), ((INTEGER) inner).getValue());
+        assertEquals(BigInteger.valueOf(2), r.getTag());
+    }
+
+    /**
+     * 識別子の途中で終わる.
+     */
+    @Test
+    public void testTagEOF() {
+        assertThrows(IllegalStateException.class,
+                () -> new ASN1X690BER().decode(ReadableBlock.wrap(new byte[] {0x7f, (byte) 0x87})));
+    }
+
+    /**
+     * SEQUENCE { INTEGER, SEQUENCE { INTEGER }, ... } 1000要素.
+     * @param eoc この位置を EndOfContent にする -1 はなし
+     * @return DER
+     */
+    static byte[] large(int eoc) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < 1000; i++) {
+            int v = 0x100 + i;
+            if (i == eoc) {
+                body.write(0x00);
+                body.write(0x00);
+                continue;
+            } else if (i % 2 == 1) {
+                body.write(0x30);
+                body.write(0x04);
+            }
+            body.write(0x02);
+            body.write(0x02);
+            body.write(v >> 8);
+            body.write(v & 0xff);
+        }
+        byte[] b = body.toByteArray();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0x30);
+        out.write(0x82);
+        out.write(b.length >> 8);
+        out.write(b.length & 0xff);
+        out.write(b, 0, b.length);
+        return out.toByteArray();
+    }
+
+    private static ASN1Tag parallel(byte[] src, DecoderOptions options) {
+        ASN1X690BER ber = new ASN1X690BER(options);
+        ber.setParallel(0);
+        return ber.decode(ReadableBlock.wrap(src));
+    }
+
+    /**
+     * 並列と順のデコードは同じ.
+     */
+    @Test
+    public void testParallel() {
+        byte[] src = large(-1);
+        ASN1StructList seq = (ASN1StructList) new ASN1X690BER().decode(ReadableBlock.wrap(src));
+        ASN1StructList par = (ASN1StructList) parallel(src, new DecoderOptions());
+        assertEquals(1000, par.size());
+        assertEquals(seq.size(), par.size());
+        ASN1DEREncoder enc = new ASN1DEREncoder();
+        for (int i = 0; i < 1000; i++) {
+            ASN1Tag t = par.get(i);
+            INTEGER n = (INTEGER) (i % 2 == 1 ? ((ASN1StructList) t).get(0) : t);
+            assertEquals(0x100 + i, n.getValue().intValue());
+            assertArrayEquals(enc.encode(seq.get(i)), enc.encode(t));
+        }
+        assertArrayEquals(src, enc.encode(seq));
+        assertArrayEquals(src, enc.encode(par));
+    }
+
+    /**
+     * 分けた先の例外は呼び出し元に届く.
+     */
+    @Test
+    public void testParallelError() {
+        byte[] src = large(700);
+        assertThrows(IllegalStateException.class, () -> new ASN1X690BER().decode(ReadableBlock.wrap(src)));
+        assertThrows(IllegalStateException.class, () -> parallel(src, new DecoderOptions()));
+    }
+
+    /**
+     * 並列でも制限は同じ.
+     */
+    @Test
+    public void testParallelOptions() {
+        byte[] src = large(-1);
+        DecoderOptions children = new DecoderOptions();
+        children.setMaxChildren(999);
+        assertThrows(IllegalStateException.class, () -> parallel(src, children));
+
+        DecoderOptions depth = new DecoderOptions();
+        depth.setMaxDepth(1);
+        assertThrows(IllegalStateException.class, () -> parallel(src, depth));
+        depth.setMaxDepth(2);
+        assertEquals(1000, ((ASN1StructList) parallel(src, depth)).size());
+
+        DecoderOptions total = new DecoderOptions();
+        total.setMaxTotal(1999); // INTEGER 2 byte * 1000
+        assertThrows(IllegalStateException.class, () -> parallel(src, total));
+        total.setMaxTotal(2000);
+        assertEquals(1000, ((ASN1StructList) parallel(src, total)).size());
+    }
+
+    /**
+     * DER の入力の終わりは 0xff として読まない.
+     */
+    @Test
+    public void testDEREOF() {
+        assertThrows(IllegalStateException.class, () -> new ASN1X690DER().decode(ReadableBlock.wrap(new byte[0])));
+        ReadableBlock block = ReadableBlock.wrap(new byte[] {0x05, 0x00});
+        ASN1X690DER der = new ASN1X690DER();
+        der.decode(block);
+        assertThrows(IllegalStateException.class, () -> der.decode(block));
+    }
+
+    /**
+     * DER の識別子の上位ビット.
+     */
+    @Test
+    public void testDERIdentifier() {
+        ASN1Tag t = new ASN1X690DER().decode(ReadableBlock.wrap(new byte[] {(byte) 0xa0, 0x03, 0x02, 0x01, 0x05}));
+        assertEquals(ASN1Cls.CONTEXT_SPECIFIC, t.getASN1Cls());
+        assertEquals(0, t.getId());
+        assertTrue(t.isConstructed());
+        assertArrayEquals(HIGH, new ASN1DEREncoder().encode(new ASN1X690DER().decode(ReadableBlock.wrap(HIGH))));
+    }
+}
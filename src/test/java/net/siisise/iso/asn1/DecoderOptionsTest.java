@@ -0,0 +1,124 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1;
+
+import java.util.stream.StreamSupport;
+import net.siisise.block.ReadableBlock;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class DecoderOptionsTest {
+
+    /**
+     * 不定長の SEQUENCE を n 段入れ子にする.
+     * @param n 深さ
+     * @return BER
+     */
+    static byte[] deep(int n) {
+        byte[] d = new byte[n * 4];
+        for (int i = 0; i < n; i++) {
+            d[i * 2] = 0x30;
+            d[i * 2 + 1] = (byte) 0x80;
+        }
+        return d;
+    }
+
+    /**
+     * 定長の SEQUENCE で包む.
+     * @param contents 内容
+     * @return BER
+     */
+    static byte[] wrap(byte[] contents) {
+        byte[] d = new byte[contents.length + 6];
+        d[0] = 0x30;
+        d[1] = (byte) 0x84;
+        d[2] = (byte) (contents.length >>> 24);
+        d[3] = (byte) (contents.length >>> 16);
+        d[4] = (byte) (contents.length >>> 8);
+        d[5] = (byte) contents.length;
+        System.arraycopy(contents, 0, d, 6, contents.length);
+        return d;
+    }
+
+    /**
+     * 深い不定長の入れ子はスタックを溢れさせずに止める.
+     */
+    @Test
+    public void testDeepIndefinite() {
+        byte[] deep = deep(100000);
+        assertThrows(IllegalStateException.class, () -> new ASN1X690BER().decode(ReadableBlock.wrap(deep)));
+        assertThrows(IllegalStateException.class, () -> new ASN1X690BER().skip(ReadableBlock.wrap(deep)));
+        assertThrows(IllegalStateException.class, () -> ASN1Util.parse(ReadableBlock.wrap(deep), (cls, tag, contents) -> { }));
+        assertThrows(IllegalStateException.class,
+                () -> StreamSupport.stream(ASN1Spliterator.of(deep), false).count());
+
+        ASN1X690BER lazy = new ASN1X690BER();
+        lazy.setLazy(true);
+        ASN1StructList list = (ASN1StructList) lazy.decode(ReadableBlock.wrap(wrap(deep)));
+        assertThrows(IllegalStateException.class, () -> list.size());
+        assertThrows(IllegalStateException.class, () -> list.get(0));
+
+        // 制限内は読める
+        byte[] ok = deep(64);
+        assertNotNull(new ASN1X690BER().decode(ReadableBlock.wrap(ok)));
+        assertTrue(new ASN1X690BER().skip(ReadableBlock.wrap(ok)));
+    }
+
+    /**
+     * 遅延デコードの構造も深さ, 要素数を数える.
+     */
+    @Test
+    public void testLazyLimit() {
+        DecoderOptions options = new DecoderOptions();
+        options.setMaxChildren(2);
+        ASN1X690BER ber = new ASN1X690BER(options);
+        ber.setLazy(true);
+        byte[] three = {0x30, 0x09, 0x02, 0x01, 0x01, 0x02, 0x01, 0x02, 0x02, 0x01, 0x03};
+        ASN1StructList list = (ASN1StructList) ber.decode(ReadableBlock.wrap(three));
+        assertNotNull(list.get(1));
+        assertThrows(IllegalStateException.class, () -> list.get(2));
+        ASN1StructList counted = (ASN1StructList) ber.decode(ReadableBlock.wrap(three));
+        assertThrows(IllegalStateException.class, () -> counted.size());
+
+        options.setMaxDepth(1);
+        byte[] nested = {0x30, 0x02, 0x30, 0x00};
+        ASN1StructList outer = (ASN1StructList) ber.decode(ReadableBlock.wrap(nested));
+        assertThrows(IllegalStateException.class, () -> outer.get(0));
+    }
+
+    /**
+     * 内容の合計はデコードごとに数える.
+     */
+    @Test
+    public void testTotal() {
+        DecoderOptions options = new DecoderOptions();
+        options.setMaxTotal(4);
+        ASN1X690BER ber = new ASN1X690BER(options);
+        byte[] three = {0x04, 0x03, 0x61, 0x62, 0x63};
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(ber.decode(ReadableBlock.wrap(three)));
+        }
+        byte[] six = {0x30, 0x0a, 0x04, 0x03, 0x61, 0x62, 0x63, 0x04, 0x03, 0x61, 0x62, 0x63};
+        assertThrows(IllegalStateException.class, () -> ber.decode(ReadableBlock.wrap(six)));
+
+        // 並列デコードでも合計は共有する
+        ber.setParallel(0);
+        assertThrows(IllegalStateException.class, () -> ber.decode(ReadableBlock.wrap(six)));
+    }
+}
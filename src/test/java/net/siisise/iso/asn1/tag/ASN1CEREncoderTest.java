@@ -0,0 +1,126 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1.tag;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import net.siisise.iso.asn1.ASN1Tag;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class ASN1CEREncoderTest {
+
+    /**
+     * SEQUENCE { OCTET STRING 2500 octet } 不定長と 1000 octet の分割
+     */
+    @Test
+    public void testWriteOctets() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ASN1CEREncoder cer = new ASN1CEREncoder(out);
+        cer.startSequence();
+        cer.writeOctets(new ByteArrayInputStream(new byte[2500]));
+        cer.endConstructed();
+        byte[] r = out.toByteArray();
+        assertEquals(2 + 2 + (4 + 1000) * 2 + (4 + 500) + 2 + 2, r.length);
+        assertArrayEquals(new byte[] {0x30, (byte) 0x80, 0x24, (byte) 0x80, 0x04, (byte) 0x82, 0x03, (byte) 0xe8},
+                Arrays.copyOf(r, 8));
+        assertEquals(0, r[r.length - 1]);
+    }
+
+    /**
+     * 1000 octet 以下は単一型
+     */
+    @Test
+    public void testShort() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ASN1CEREncoder(out).writeOctets(new ByteArrayInputStream(new byte[1000]));
+        byte[] r = out.toByteArray();
+        assertEquals(4 + 1000, r.length);
+        assertEquals(0x04, r[0]);
+    }
+
+    private static byte[] cer(Object obj) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ASN1CEREncoder(out).encode(obj);
+        return out.toByteArray();
+    }
+
+    /**
+     * SET は要素の符号化の順に並べる.
+     */
+    @Test
+    public void testSetOrder() throws IOException {
+        SEQUENCEList<ASN1Tag> set = SEQUENCEList.SET();
+        set.add(new INTEGER(300));
+        set.add(new BOOLEAN(true));
+        byte[] r = cer(set);
+        assertArrayEquals(new byte[] {0x31, (byte) 0x80, 0x01, 0x01, (byte) 0xff, 0x02, 0x02, 0x01, 0x2c, 0x00, 0x00}, r);
+    }
+
+    /**
+     * BIT STRING の分割. 未使用ビット数は最後の断片のみ.
+     */
+    @Test
+    public void testBitStringSegments() throws IOException {
+        byte[] r = cer(new BITSTRING(new byte[2500], 2500 * 8L - 3));
+        // 999 + 999 + 502 octet の断片
+        assertEquals(2 + (4 + 1000) * 2 + (4 + 503) + 2, r.length);
+        assertArrayEquals(new byte[] {0x23, (byte) 0x80, 0x03, (byte) 0x82, 0x03, (byte) 0xe8, 0x00},
+                Arrays.copyOf(r, 7));
+        int second = 2 + 4 + 1000;
+        assertArrayEquals(new byte[] {0x03, (byte) 0x82, 0x03, (byte) 0xe8, 0x00},
+                Arrays.copyOfRange(r, second, second + 5));
+        int last = second + 4 + 1000;
+        assertArrayEquals(new byte[] {0x03, (byte) 0x82, 0x01, (byte) 0xf7, 0x03},
+                Arrays.copyOfRange(r, last, last + 5));
+        assertArrayEquals(new byte[] {0x00, 0x00}, Arrays.copyOfRange(r, r.length - 2, r.length));
+    }
+
+    /**
+     * CHOICE は選択した要素のみ. 中身も CER で書く.
+     */
+    @Test
+    public void testChoice() throws IOException {
+        CHOICE<ASN1Tag> choice = new CHOICE<>();
+        choice.put("data", new OCTETSTRING(new byte[1500]));
+        byte[] r = cer(choice);
+        assertEquals(2 + (4 + 1000) + (4 + 500) + 2, r.length);
+        assertArrayEquals(new byte[] {0x24, (byte) 0x80, 0x04, (byte) 0x82, 0x03, (byte) 0xe8},
+                Arrays.copyOf(r, 6));
+    }
+
+    /**
+     * ASN.1 の型でないものも変換して分割する.
+     */
+    @Test
+    public void testConvert() throws IOException {
+        char[] a = new char[1500];
+        Arrays.fill(a, 'a');
+        byte[] r = cer(new String(a));
+        assertEquals(2 + (4 + 1000) + (4 + 500) + 2, r.length);
+        assertArrayEquals(new byte[] {0x2c, (byte) 0x80, 0x04, (byte) 0x82, 0x03, (byte) 0xe8},
+                Arrays.copyOf(r, 6));
+
+        r = cer(new byte[1500]);
+        assertArrayEquals(new byte[] {0x24, (byte) 0x80, 0x04, (byte) 0x82, 0x03, (byte) 0xe8},
+                Arrays.copyOf(r, 6));
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1.tag;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import net.siisise.iso.asn1.ASN1Cls;
+import net.siisise.iso.asn1.ASN1Object;
+import net.siisise.iso.asn1.ASN1Tag;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class ASN1DEREncoderTest {
+
+    private static byte[] written(ByteBuffer dst) {
+        return Arrays.copyOf(dst.array(), dst.position());
+    }
+
+    /**
+     * 足りない buffer では何も書かずに必要な長さを返し、同じ要素で続けて書ける.
+     */
+    @Test
+    public void testShortBuffer() {
+        SEQUENCEList<ASN1Tag> seq = new SEQUENCEList<>();
+        seq.add(new INTEGER(300));
+        seq.add(new OCTETSTRING(new byte[] {1, 2, 3}));
+        byte[] der = new ASN1DEREncoder().encode(seq);
+
+        ASN1DEREncoder encoder = new ASN1DEREncoder();
+        ByteBuffer small = ByteBuffer.allocate(2);
+        assertEquals(-der.length, encoder.encode(seq, small));
+        assertEquals(0, small.position());
+
+        ByteBuffer dst = ByteBuffer.allocate(64);
+        assertEquals(der.length, encoder.encode(seq, dst));
+        assertArrayEquals(der, written(dst));
+    }
+
+    /**
+     * 足りなかった後に変更された要素は計算し直す.
+     */
+    @Test
+    public void testShortBufferModified() {
+        SEQUENCEList<ASN1Tag> seq = new SEQUENCEList<>();
+        seq.add(new INTEGER(300));
+        OCTETSTRING os = new OCTETSTRING(new byte[] {1, 2, 3});
+        seq.add(os);
+
+        ASN1DEREncoder encoder = new ASN1DEREncoder();
+        int before = encoder.encode(seq, ByteBuffer.allocate(2));
+        assertTrue(before < 0);
+
+        os.setValue(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        byte[] der = new ASN1DEREncoder().encode(seq);
+        assertEquals(-before + 5, der.length);
+
+        ByteBuffer dst = ByteBuffer.allocate(64);
+        assertEquals(der.length, encoder.encode(seq, dst));
+        assertArrayEquals(der, written(dst));
+    }
+
+    /**
+     * 要素の追加も検出する.
+     */
+    @Test
+    public void testShortBufferAdded() {
+        SEQUENCEList<ASN1Tag> seq = new SEQUENCEList<>();
+        seq.add(new INTEGER(1));
+
+        ASN1DEREncoder encoder = new ASN1DEREncoder();
+        assertTrue(encoder.encode(seq, ByteBuffer.allocate(1)) < 0);
+
+        seq.add(new BOOLEAN(true));
+        byte[] der = new ASN1DEREncoder().encode(seq);
+        ByteBuffer dst = ByteBuffer.allocate(64);
+        assertEquals(der.length, encoder.encode(seq, dst));
+        assertArrayEquals(der, written(dst));
+    }
+
+    private static byte[] implicit(ASN1Object obj, int tag) {
+        obj.setTag(ASN1Cls.CONTEXT_SPECIFIC, tag);
+        return new ASN1DEREncoder().encode(obj);
+    }
+
+    /**
+     * IMPLICIT では識別子のみ変わり、内容は UNIVERSAL と同じ.
+     */
+    @Test
+    public void testImplicit() {
+        assertArrayEquals(new byte[] {(byte) 0x80, 0x01, 0x05}, implicit(new INTEGER(5), 0));
+        assertArrayEquals(new byte[] {(byte) 0x81, 0x02, 0x01, 0x2c}, implicit(new INTEGER(300), 1));
+        assertArrayEquals(new byte[] {(byte) 0x82, 0x01, (byte) 0xff}, implicit(new BOOLEAN(true), 2));
+        assertArrayEquals(new byte[] {(byte) 0x83, 0x00}, implicit(new NULL(), 3));
+        assertArrayEquals(new byte[] {(byte) 0x84, 0x03, 0x2a, (byte) 0x86, 0x48},
+                implicit(new OBJECTIDENTIFIER("1.2.840"), 4));
+        assertArrayEquals(new byte[] {(byte) 0x85, 0x02, 0x05, (byte) 0xa0},
+                implicit(new BITSTRING(new byte[] {(byte) 0xa0}, 3), 5));
+        assertArrayEquals(new byte[] {(byte) 0x9f, 0x1f, 0x01, 0x05}, implicit(new INTEGER(5), 31));
+
+        byte[] real = new ASN1DEREncoder().encode(new REAL<>(0.5));
+        byte[] r = implicit(new REAL<>(0.5), 6);
+        assertEquals(0x09, real[0]);
+        assertEquals((byte) 0x86, r[0]);
+        assertArrayEquals(Arrays.copyOfRange(real, 1, real.length), Arrays.copyOfRange(r, 1, r.length));
+    }
+
+    /**
+     * 内容のない OCTETSTRING は長さ 0.
+     */
+    @Test
+    public void testEmptyOctets() {
+        assertArrayEquals(new byte[] {0x04, 0x00}, new ASN1DEREncoder().encode(new OCTETSTRING()));
+        ByteBuffer dst = ByteBuffer.allocate(8);
+        assertEquals(2, new ASN1DEREncoder().encode(new OCTETSTRING(), dst));
+        assertArrayEquals(new byte[] {0x04, 0x00}, written(dst));
+    }
+
+    /**
+     * 符号化できない OID.
+     */
+    @Test
+    public void testInvalidOid() {
+        ASN1DEREncoder encoder = new ASN1DEREncoder();
+        assertThrows(IllegalStateException.class, () -> encoder.encode(new OBJECTIDENTIFIER("1")));
+        assertThrows(IllegalStateException.class, () -> encoder.encode(new OBJECTIDENTIFIER("3.1")));
+        assertThrows(IllegalStateException.class, () -> encoder.encode(new OBJECTIDENTIFIER("1.40")));
+        assertArrayEquals(new byte[] {0x06, 0x02, (byte) 0x88, 0x37},
+                encoder.encode(new OBJECTIDENTIFIER("2.999")));
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1.tag;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ */
+public class ASN1DERFormatTest {
+
+    /**
+     * long の INTEGER は BigInteger と同じ.
+     */
+    @Test
+    public void testLongFormat() {
+        ASN1DERFormat format = new ASN1DERFormat();
+        long[] vals = {0, 1, -1, 127, 128, -128, -129, 255, 256, 32767, -32768, 0x7fffffffL, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long v : vals) {
+            byte[] body = BigInteger.valueOf(v).toByteArray();
+            byte[] result = format.longFormat(v);
+            assertEquals(0x02, result[0]);
+            assertEquals(body.length, result[1]);
+            assertArrayEquals(body, Arrays.copyOfRange(result, 2, result.length), Long.toString(v));
+        }
+        format.longFormat(5)[2] = 6;
+        assertArrayEquals(new byte[] {0x02, 0x01, 0x05}, format.numberFormat(5));
+        assertArrayEquals(new byte[] {0x01, 0x01, (byte) 0xff}, format.booleanFormat(true));
+        assertArrayEquals(new byte[] {0x05, 0x00}, format.nullFormat());
+    }
+
+    /**
+     * 長い形の長さ.
+     */
+    @Test
+    public void testLength() {
+        byte[] d = new ASN1DERFormat().byteArrayFormat(new byte[300]);
+        assertArrayEquals(new byte[] {0x04, (byte) 0x82, 0x01, 0x2c}, Arrays.copyOf(d, 4));
+        assertEquals(304, d.length);
+    }
+}
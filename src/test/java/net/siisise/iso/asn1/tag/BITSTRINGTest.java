@@ -0,0 +1,80 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1.tag;
+
+import java.nio.ByteBuffer;
+import net.siisise.block.ReadableBlock;
+import net.siisise.iso.asn1.ASN1X690BER;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class BITSTRINGTest {
+
+    /**
+     * 未使用ビット数 3, 本体の最後に未使用ビットが残っている BER
+     */
+    static final byte[] BER = {0x03, 0x03, 0x03, (byte) 0xff, (byte) 0xff};
+
+    /**
+     * 内容が足りない.
+     */
+    @Test
+    public void testShortRead() {
+        BITSTRING bs = new BITSTRING();
+        ReadableBlock in = ReadableBlock.wrap(new byte[] {0x00, 0x01});
+        assertThrows(IllegalStateException.class, () -> bs.decodeBody(in, 4));
+    }
+
+    /**
+     * copy, asByteBuffer は参照状態を解除しない.
+     */
+    @Test
+    public void testViewCopy() {
+        ASN1X690BER ber = new ASN1X690BER();
+        ber.setView(true);
+        BITSTRING bs = (BITSTRING) ber.decode(ReadableBlock.wrap(BER));
+        assertTrue(bs.isView());
+        assertEquals(13, bs.bitLength());
+        assertArrayEquals(new byte[] {(byte) 0xff, (byte) 0xf8}, bs.copy());
+        assertTrue(bs.isView());
+
+        ByteBuffer a = bs.asByteBuffer();
+        assertEquals(2, a.remaining());
+        assertEquals((byte) 0xf8, a.get(1));
+        a.get();
+        assertEquals(2, bs.asByteBuffer().remaining());
+        assertTrue(bs.isView());
+    }
+
+    /**
+     * ByteBuffer の参照. 未使用ビットは 0 にして返す.
+     */
+    @Test
+    public void testBufferView() {
+        BITSTRING bs = new BITSTRING();
+        bs.view(ByteBuffer.wrap(new byte[] {0x03, (byte) 0xff, (byte) 0xff}));
+        assertEquals((byte) 0xf8, bs.asByteBuffer().get(1));
+        assertTrue(bs.isView());
+
+        bs.view(ByteBuffer.wrap(new byte[] {0x03, (byte) 0xff, (byte) 0xf8}));
+        assertEquals((byte) 0xf8, bs.asByteBuffer().get(1));
+        assertArrayEquals(new byte[] {(byte) 0xff, (byte) 0xf8}, bs.getValue());
+        assertFalse(bs.isView());
+    }
+}
@@ -16,6 +16,9 @@
 package net.siisise.iso.asn1.tag;
 
 import net.siisise.bind.Rebind;
+import net.siisise.block.ReadableBlock;
+import net.siisise.iso.asn1.ASN1Decoder;
+import net.siisise.lang.Bin;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -73,4 +76,17 @@ public class OBJECTIDENTIFIERTest {
         
     }
     
+    /**
+     * 直接の符号化. 大きい arc は BigInteger.
+     */
+    @Test
+    public void testEncode() {
+        OBJECTIDENTIFIER instance = new OBJECTIDENTIFIER("2.16.840.1.101.3.4.1.1");
+        assertArrayEquals(Bin.toByteArray("0609608648016503040101"), instance.encodeAll());
+        assertArrayEquals(Bin.toByteArray("06028837"), new OBJECTIDENTIFIER("2.999").encodeAll());
+        String uuid = "2.25.329800735698586629295641978511506172918";
+        byte[] d = new OBJECTIDENTIFIER(uuid).encodeAll();
+        assertEquals(uuid, ASN1Decoder.toASN1(ReadableBlock.wrap(d)).getValue());
+    }
+
 }
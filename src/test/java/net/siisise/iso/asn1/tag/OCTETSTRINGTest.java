@@ -0,0 +1,73 @@
+/*
+ * Copyright 2025 okome.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.siisise.iso.asn1.tag;
+
+import java.nio.ByteBuffer;
+import net.siisise.block.ReadableBlock;
+import net.siisise.iso.asn1.ASN1X690BER;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ */
+public class OCTETSTRINGTest {
+
+    /**
+     * asByteBuffer は参照状態を解除しない.
+     */
+    @Test
+    public void testAsByteBuffer() {
+        ASN1X690BER ber = new ASN1X690BER();
+        ber.setView(true);
+        OCTETSTRING os = (OCTETSTRING) ber.decode(ReadableBlock.wrap(new byte[] {0x04, 0x03, 0x61, 0x62, 0x63}));
+        assertTrue(os.isView());
+        ByteBuffer bb = os.asByteBuffer();
+        assertEquals(3, bb.remaining());
+        assertEquals(0x61, bb.get());
+        assertTrue(os.isView());
+        assertEquals(3, os.length());
+    }
+
+    /**
+     * 内容なし.
+     */
+    @Test
+    public void testEmpty() {
+        OCTETSTRING os = new OCTETSTRING();
+        assertEquals(0, os.length());
+        assertEquals(0, os.asByteBuffer().remaining());
+    }
+
+    /**
+     * ReadableBlock の参照は1回だけ読み、呼び出しごとに独立した位置を返す.
+     */
+    @Test
+    public void testAsByteBufferTwice() {
+        ASN1X690BER ber = new ASN1X690BER();
+        ber.setView(true);
+        OCTETSTRING os = (OCTETSTRING) ber.decode(ReadableBlock.wrap(new byte[] {0x04, 0x03, 0x61, 0x62, 0x63}));
+        ByteBuffer a = os.asByteBuffer();
+        a.get();
+        ByteBuffer b = os.asByteBuffer();
+        assertEquals(3, b.remaining());
+        assertEquals(0x61, b.get());
+        assertEquals(2, a.remaining());
+        assertTrue(os.isView());
+        assertArrayEquals(new byte[] {0x61, 0x62, 0x63}, os.getValue());
+        assertFalse(os.isView());
+    }
+}